@@ -0,0 +1,218 @@
+package ru.yandex.practicum.filmorate.audit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Audit log which takes events off the calling thread. Callers put events into a bounded lock-free
+ * ring buffer, a single writer thread drains it and passes up to {@code batchSize} formatted events
+ * to the sink at once, waking up every {@code flushIntervalMillis} when the buffer runs dry.
+ * <p>
+ * Every slot carries a sequence number: a caller claims a slot by moving the tail and publishes
+ * the event by setting the sequence of the slot, the writer frees it by setting the sequence
+ * for the next round. When the buffer is full an event is either dropped and counted,
+ * or the caller waits for the writer, depending on the overflow policy. Events of each type
+ * are kept with the sampling rate of the type, the rest are skipped before they reach the buffer.
+ */
+@Slf4j
+public class AsyncAuditLog implements AuditLog, MeterBinder, Closeable {
+
+    public enum OverflowPolicy { DROP, BLOCK }
+
+    private static final AuditEventType[] TYPES = AuditEventType.values();
+
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final int[] types;
+    private final int[] subjectIds;
+    private final int[] objectIds;
+    private final long[] timestamps;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    // Written by the writer thread only
+    private volatile long head;
+
+    private final double[] samplingRates = new double[TYPES.length];
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Consumer<String> sink;
+    private final Thread writer = new Thread(this::write, "audit-writer");
+
+    private final LongAdder droppedCount = new LongAdder();
+
+    private volatile boolean isClosed;
+
+    /**
+     * @param capacity      slots of the ring buffer, rounded up to a power of two
+     * @param samplingRates share of the events of a type to keep, 1 for the types which are not given
+     * @param sink          receives the formatted events of a batch, one per line
+     */
+    public AsyncAuditLog(int capacity, OverflowPolicy overflowPolicy, Map<AuditEventType, Double> samplingRates,
+                         int batchSize, long flushIntervalMillis, Consumer<String> sink) {
+        if (capacity <= 0 || batchSize <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Capacity, batch size and flush interval must be positive.");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.types = new int[size];
+        this.subjectIds = new int[size];
+        this.objectIds = new int[size];
+        this.timestamps = new long[size];
+        for (AuditEventType type : TYPES) {
+            this.samplingRates[type.ordinal()] = samplingRates.getOrDefault(type, 1.0);
+        }
+        this.overflowPolicy = overflowPolicy;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.sink = sink;
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void record(AuditEventType type, int subjectId, int objectId) {
+        double samplingRate = samplingRates[type.ordinal()];
+        if (samplingRate < 1 && (samplingRate <= 0 || ThreadLocalRandom.current().nextDouble() >= samplingRate)) {
+            return;
+        }
+        if (isClosed) {
+            droppedCount.increment();
+            return;
+        }
+        long timestamp = System.currentTimeMillis();
+        while (!offer(type, subjectId, objectId, timestamp)) {
+            if (overflowPolicy == OverflowPolicy.DROP || isClosed) {
+                droppedCount.increment();
+                return;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Events which have not been written because the buffer was full or the log was closed.
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Events in the buffer which the writer has not taken yet.
+     */
+    public long getPendingCount() {
+        return Math.max(0, tail.get() - head);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("filmorate.audit.dropped", this, AsyncAuditLog::getDroppedCount)
+                .description("Audit events dropped because the buffer was full or the log was closed")
+                .register(registry);
+        Gauge.builder("filmorate.audit.pending", this, AsyncAuditLog::getPendingCount)
+                .description("Audit events waiting to be written")
+                .register(registry);
+    }
+
+    /**
+     * Writes the events already in the buffer and stops the writer. Events recorded afterwards are dropped.
+     */
+    @Override
+    public void close() {
+        isClosed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean offer(AuditEventType type, int subjectId, int objectId, long timestamp) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    types[index] = type.ordinal();
+                    subjectIds[index] = subjectId;
+                    objectIds[index] = objectId;
+                    timestamps[index] = timestamp;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // The slot still holds the event of the previous round
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private void write() {
+        StringBuilder batch = new StringBuilder();
+        while (true) {
+            int count = drain(batch);
+            if (count > 0) {
+                try {
+                    sink.accept(batch.toString());
+                } catch (RuntimeException e) {
+                    // The writer must keep freeing the buffer, or callers would drop or wait forever
+                    log.error("Batch of {} audit events has not been written.", count, e);
+                }
+                batch.setLength(0);
+            }
+            if (count < batchSize) {
+                if (isClosed && head == tail.get()) {
+                    return;
+                }
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+    }
+
+    // Formats up to batchSize published events and frees their slots
+    private int drain(StringBuilder batch) {
+        int count = 0;
+        while (count < batchSize) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            if (count > 0) {
+                batch.append(System.lineSeparator());
+            }
+            batch.append(Instant.ofEpochMilli(timestamps[index])).append(' ');
+            TYPES[types[index]].appendMessage(batch, subjectIds[index], objectIds[index]);
+            sequences.lazySet(index, head + mask + 1);
+            head++;
+            count++;
+        }
+        return count;
+    }
+}
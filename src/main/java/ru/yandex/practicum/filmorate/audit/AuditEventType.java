@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.audit;
+
+/**
+ * Kinds of audit events with the message of each. Placeholders take the subject and the object of the event,
+ * in that order; events about a single entity have no object.
+ */
+public enum AuditEventType {
+
+    FILM_CREATED("Film with id={} has been created."),
+    FILM_UPDATED("Film with id={} has been updated."),
+    USER_CREATED("User with id={} has been created."),
+    USER_UPDATED("User with id={} has been updated."),
+    LIKE_ADDED("User with id={} has liked film with id={}."),
+    LIKE_ALREADY_ADDED("User with id={} already has liked film with id={}."),
+    LIKE_REMOVED("User with id={} has removed like from film with id={}."),
+    LIKE_NOT_FOUND("User with id={} has not liked film with id={}."),
+    FRIENDSHIP_ADDED("Users with ids [{}, {}] are friends now."),
+    FRIENDSHIP_ALREADY_ADDED("Users with ids [{}, {}] are friends already."),
+    FRIENDSHIP_REMOVED("Users with ids [{}, {}] are not friends now."),
+    FRIENDSHIP_NOT_FOUND("Users with ids [{}, {}] have not been friends.");
+
+    private final String template;
+
+    // Text around the placeholders, one part more than there are placeholders
+    private final String[] parts;
+
+    AuditEventType(String template) {
+        this.template = template;
+        this.parts = template.split("\\{}", -1);
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Name of the type in properties, e.g. like-added.
+     */
+    public String getPropertyName() {
+        return name().toLowerCase().replace('_', '-');
+    }
+
+    void appendMessage(StringBuilder builder, int subjectId, int objectId) {
+        builder.append(parts[0]);
+        if (parts.length > 1) {
+            builder.append(subjectId).append(parts[1]);
+        }
+        if (parts.length > 2) {
+            builder.append(objectId).append(parts[2]);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.audit;
+
+/**
+ * Sink of audit events. Recording an event must be cheap enough for the like and friend calls,
+ * so an event is a type and two ids rather than a formatted message.
+ */
+public interface AuditLog {
+
+    AuditLog NONE = (type, subjectId, objectId) -> {
+    };
+
+    void record(AuditEventType type, int subjectId, int objectId);
+
+    default void record(AuditEventType type, int subjectId) {
+        record(type, subjectId, 0);
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Configuration
+public class AuditLogConfig {
+
+    // Audit events go to a logger of their own, so that they can be routed to a separate appender
+    private static final Logger AUDIT_LOGGER = LoggerFactory.getLogger("ru.yandex.practicum.filmorate.audit.events");
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "filmorate.audit.enabled", havingValue = "true")
+    public AsyncAuditLog auditLog(@Value("${filmorate.audit.capacity}") int capacity,
+                                  @Value("${filmorate.audit.overflow-policy}") AsyncAuditLog.OverflowPolicy policy,
+                                  @Value("${filmorate.audit.batch-size}") int batchSize,
+                                  @Value("${filmorate.audit.flush-interval-ms}") long flushIntervalMillis,
+                                  Environment environment) {
+        // filmorate.audit.sampling.<type>, e.g. filmorate.audit.sampling.like-added=0.01
+        Map<AuditEventType, Double> samplingRates = new EnumMap<>(AuditEventType.class);
+        for (AuditEventType type : AuditEventType.values()) {
+            samplingRates.put(type, environment.getProperty("filmorate.audit.sampling." + type.getPropertyName(),
+                    Double.class, 1.0));
+        }
+        return new AsyncAuditLog(capacity, policy, samplingRates, batchSize, flushIntervalMillis,
+                AUDIT_LOGGER::info);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.audit.enabled", havingValue = "false", matchIfMissing = true)
+    public AuditLog noAuditLog() {
+        return AuditLog.NONE;
+    }
+}
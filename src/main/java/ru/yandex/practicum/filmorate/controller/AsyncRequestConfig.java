@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Async execution of the film and user handlers. Handlers run on virtual threads when the JVM
+ * has them and they are asked for, otherwise on a bounded pool which rejects requests once its queue is full.
+ * Any executor bean turns off the one Spring Boot configures, so it is declared here the way Spring Boot does,
+ * and the NDJSON exports keep running on it; the request executor is only handed to the handler adapter.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "filmorate.web.async.enabled", havingValue = "true")
+public class AsyncRequestConfig {
+
+    @Lazy
+    @Primary
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+
+    @Bean
+    @Qualifier("requestExecutor")
+    public AsyncTaskExecutor requestExecutor(@Value("${filmorate.web.async.virtual-threads}") boolean virtualThreads,
+                                             @Value("${filmorate.web.async.pool-size}") int poolSize,
+                                             @Value("${filmorate.web.async.queue-capacity}") int queueCapacity) {
+        if (virtualThreads) {
+            try {
+                // Looked up reflectively, as the code is built for Java 11
+                ExecutorService executor = (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+                return new VirtualThreadTaskExecutor(executor);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads are not available on Java {}, requests run on a pool of {} threads.",
+                        Runtime.version().feature(), poolSize);
+            }
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("request-");
+        return executor;
+    }
+
+    @Bean
+    public WebMvcRegistrations asyncRequestRegistrations(
+            @Qualifier("requestExecutor") AsyncTaskExecutor requestExecutor,
+            @Value("${filmorate.web.async.timeout-ms}") long timeoutMillis) {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+                return new AsyncRequestMappingHandlerAdapter(Set.of(FilmController.class, UserController.class),
+                        requestExecutor, timeoutMillis);
+            }
+        };
+    }
+
+    /**
+     * Shuts the virtual threads executor down with the context, as the adapter itself has nothing to close.
+     */
+    static class VirtualThreadTaskExecutor extends TaskExecutorAdapter implements DisposableBean {
+
+        private final ExecutorService executor;
+
+        VirtualThreadTaskExecutor(ExecutorService executor) {
+            super(executor);
+            this.executor = executor;
+        }
+
+        @Override
+        public void destroy() {
+            executor.shutdown();
+        }
+    }
+}
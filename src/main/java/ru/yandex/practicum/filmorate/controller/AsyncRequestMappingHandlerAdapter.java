@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the handlers of the given controllers as async tasks on the executor, so that a request
+ * waiting for the storage does not hold a Tomcat thread. Arguments are resolved and validated
+ * on the Tomcat thread, a handler returns as it would synchronously and the result is written
+ * on the async dispatch. Streaming handlers stay as they are, since they write asynchronously anyway.
+ */
+public class AsyncRequestMappingHandlerAdapter extends RequestMappingHandlerAdapter {
+
+    private final Set<Class<?>> controllers;
+    private final AsyncTaskExecutor executor;
+    private final long timeoutMillis;
+
+    public AsyncRequestMappingHandlerAdapter(Set<Class<?>> controllers, AsyncTaskExecutor executor,
+                                             long timeoutMillis) {
+        this.controllers = controllers;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        if (!controllers.contains(handlerMethod.getBeanType()) || isStreaming(handlerMethod)) {
+            return super.createInvocableHandlerMethod(handlerMethod);
+        }
+        return new AsyncInvocableHandlerMethod(handlerMethod);
+    }
+
+    private static boolean isStreaming(HandlerMethod handlerMethod) {
+        ResolvableType returnType = ResolvableType.forMethodParameter(handlerMethod.getReturnType());
+        return StreamingResponseBody.class.equals(returnType.resolve())
+                || StreamingResponseBody.class.equals(returnType.getGeneric().resolve());
+    }
+
+    private class AsyncInvocableHandlerMethod extends ServletInvocableHandlerMethod {
+
+        AsyncInvocableHandlerMethod(HandlerMethod handlerMethod) {
+            super(handlerMethod);
+        }
+
+        @Override
+        public void invokeAndHandle(ServletWebRequest webRequest, ModelAndViewContainer mavContainer,
+                                    Object... providedArgs) throws Exception {
+            Object[] args = getMethodArgumentValues(webRequest, mavContainer, providedArgs);
+            WebAsyncTask<Object> task = new WebAsyncTask<>(timeoutMillis, executor, () -> doInvoke(args));
+            try {
+                WebAsyncUtils.getAsyncManager(webRequest).startCallableProcessing(task, mavContainer);
+            } catch (RejectedExecutionException e) {
+                // The rejection has already become the result of the request and is handled on the dispatch
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Strong ETags built from the versions the repositories maintain, so a tag costs a few reads
+ * instead of serializing or hashing the entity. Versions start over when the process restarts,
+ * hence every tag carries the epoch of the process and tags of an earlier run never match.
+ * A version is moved after the change it stands for, so a tag read before the body is never
+ * newer than the body and a client at worst fetches an unchanged body once more.
+ */
+@Component
+public class EntityTags {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    public String ofFilm(Film film) {
+        return '"' + epoch + "-f" + film.getId() + '-' + film.getVersion().sum() + '"';
+    }
+
+    /**
+     * Tag of the friends list of the user, which changes with the friendships of the user
+     * and with every friend in the list.
+     */
+    public String ofFriends(User user, Iterable<User> friends) {
+        long hash = user.getVersion().get();
+        for (User friend : friends) {
+            hash = mix(mix(hash, friend.getId()), friend.getVersion().get());
+        }
+        return '"' + epoch + "-u" + user.getId() + '-' + Long.toHexString(hash) + '"';
+    }
+
+    // Depends on the order of the friends, which a repository lists the same way every time
+    private static long mix(long hash, long value) {
+        long mixed = (hash ^ value) * 0x9E3779B97F4A7C15L;
+        return mixed ^ (mixed >>> 32);
+    }
+}
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +17,8 @@ import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -49,6 +52,27 @@ public class ErrorController extends ResponseEntityExceptionHandler {
         return handleExceptionInternal(ex, body, new HttpHeaders(), HttpStatus.NOT_FOUND, request);
     }
 
+    // Thrown when a request parameter of a validated controller is out of its constraints
+    @ExceptionHandler(value = ConstraintViolationException.class)
+    protected ResponseEntity<Object> constraintViolation(ConstraintViolationException ex, WebRequest request) {
+        log.error("Validation failed. Message: {}", ex.getMessage());
+        Map<String, Object> body = getGeneralErrorBody(HttpStatus.BAD_REQUEST, request);
+        body.put(REASONS, ex.getConstraintViolations()
+                .stream()
+                .map(this::getViolationString)
+                .collect(Collectors.toList()));
+        return handleExceptionInternal(ex, body, new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+
+    // Thrown when the async request executor is saturated
+    @ExceptionHandler(value = TaskRejectedException.class)
+    protected ResponseEntity<Object> requestRejected(TaskRejectedException ex, WebRequest request) {
+        log.warn(ex.getMessage());
+        Map<String, Object> body = getGeneralErrorBody(HttpStatus.SERVICE_UNAVAILABLE, request);
+        body.put(REASONS, Collections.singletonList("Too many requests in progress."));
+        return handleExceptionInternal(ex, body, new HttpHeaders(), HttpStatus.SERVICE_UNAVAILABLE, request);
+    }
+
     @ExceptionHandler(value = Exception.class)
     protected ResponseEntity<Object> genericExceptionHandler(Exception ex, WebRequest request) {
         log.error("Internal server error.", ex);
@@ -92,6 +116,11 @@ public class ErrorController extends ResponseEntityExceptionHandler {
         return error.getDefaultMessage();
     }
 
+    private String getViolationString(ConstraintViolation<?> violation) {
+        return "Validation exception [parameter: '" + violation.getPropertyPath() + "', value: '"
+                + violation.getInvalidValue() + "', mes: '" + violation.getMessage() + "']";
+    }
+
     private String getRequestURI(WebRequest request) {
         if (request instanceof ServletWebRequest) {
             HttpServletRequest requestHttp = ((ServletWebRequest) request).getRequest();
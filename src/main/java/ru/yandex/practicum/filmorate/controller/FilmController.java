@@ -1,24 +1,44 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+import java.util.List;
 
 @RestController
+@Validated
 @RequiredArgsConstructor
 public class FilmController {
 
     private final FilmService filmService;
+    private final NdjsonStreamingWriter ndjsonStreamingWriter;
+    private final PopularFilmsResponseCache popularFilmsResponseCache;
+    private final EntityTags entityTags;
 
     private final static String DEFAULT_RATING_COUNT = "10";
+    private final static int DEFAULT_PAGE_LIMIT = 100;
 
     @GetMapping(value = "/films/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Film getFilm(@PathVariable Integer id) {
-        return filmService.getFilmById(id);
+    public ResponseEntity<Film> getFilm(@PathVariable Integer id, WebRequest request) {
+        Film film = filmService.getFilmById(id);
+        String eTag = entityTags.ofFilm(film);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(film);
     }
 
     @PostMapping(value = "/films", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -31,9 +51,28 @@ public class FilmController {
         return filmService.updateFilm(film);
     }
 
+    @PostMapping(value = "/films/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult<Film>> addFilms(@RequestBody List<Film> films) {
+        return filmService.createFilms(films);
+    }
+
+    @PutMapping(value = "/films/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult<Film>> updateFilms(@RequestBody List<Film> films) {
+        return filmService.updateFilms(films);
+    }
+
     @GetMapping(value = "/films", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Iterable<Film> getAllFilms() {
-        return filmService.getAllFilms();
+    public Iterable<Film> getAllFilms(@RequestParam(required = false) Integer after,
+                                      @RequestParam(required = false) @Positive Integer limit) {
+        if (after == null && limit == null) {
+            return filmService.getAllFilms();
+        }
+        return filmService.getFilmsPage(after, limit == null ? DEFAULT_PAGE_LIMIT : limit);
+    }
+
+    @GetMapping(value = "/films", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFilms() {
+        return ndjsonStreamingWriter.stream(filmService.getAllFilms());
     }
 
     @PutMapping(value = "/films/{id}/like/{userId}", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -46,8 +85,42 @@ public class FilmController {
         return filmService.removeLike(userId, filmId);
     }
 
+    @PostMapping(value = "/films/likes/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult<LikeMutation>> applyLikes(@RequestBody List<LikeMutation> mutations) {
+        return filmService.applyLikes(mutations);
+    }
+
     @GetMapping(value = "/films/popular", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Iterable<Film> getMostPopularFilms(@RequestParam(defaultValue = DEFAULT_RATING_COUNT) Integer count) {
-        return filmService.getMostPopularFilms(count);
+    public ResponseEntity<byte[]> getMostPopularFilms(
+            @RequestParam(defaultValue = DEFAULT_RATING_COUNT) @Positive Integer count) {
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(popularFilmsResponseCache.getMostPopularFilms(count));
+    }
+
+    @GetMapping(value = "/films/popular", params = "window", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<Film> getTrendingFilms(@RequestParam TrendingWindow window,
+                                       @RequestParam(defaultValue = DEFAULT_RATING_COUNT) @Positive Integer count) {
+        return filmService.getTrendingFilms(window, count);
+    }
+
+    @GetMapping(value = "/films/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<Film> searchFilms(@RequestParam("q") String query,
+                                  @RequestParam(defaultValue = DEFAULT_RATING_COUNT) @Positive Integer count) {
+        return filmService.searchFilms(query, count);
+    }
+
+    @GetMapping(value = "/films/{id}/similar", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<Film> getSimilarFilms(@PathVariable("id") Integer filmId,
+                                      @RequestParam(defaultValue = DEFAULT_RATING_COUNT) @Positive Integer count) {
+        return filmService.getSimilarFilms(filmId, count);
+    }
+
+    @GetMapping(value = "/users/{id}/film-recommendations", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<Film> getRecommendedFilms(@PathVariable("id") Integer userId,
+                                          @RequestParam(defaultValue = DEFAULT_RATING_COUNT)
+                                          @Positive Integer count) {
+        return filmService.getRecommendedFilms(userId, count);
     }
 }
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialized JSON of the most popular films per requested count. An entry is served until the rating
+ * version of {@link FilmService} moves on, and even then for up to maxStalenessMillis after it was built,
+ * so that a stream of likes does not turn every request into a rebuild. Only one request rebuilds
+ * an entry, the others for the same count wait for its bytes.
+ */
+@Component
+public class PopularFilmsResponseCache {
+
+    // Larger ratings are rare and would make the cache as large as the catalog
+    static final int MAX_CACHED_COUNT = 100;
+
+    private final FilmService filmService;
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean isEnabled;
+
+    private final long maxStalenessNanos;
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    public PopularFilmsResponseCache(FilmService filmService,
+                                     ObjectMapper objectMapper,
+                                     @Value("${filmorate.popular-cache.enabled}") boolean isEnabled,
+                                     @Value("${filmorate.popular-cache.max-staleness-ms}") long maxStalenessMillis) {
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.isEnabled = isEnabled;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
+    }
+
+    public byte[] getMostPopularFilms(int count) {
+        if (!isEnabled || count > MAX_CACHED_COUNT) {
+            return serialize(filmService.getMostPopularFilms(count));
+        }
+        Entry entry = entries.get(count);
+        if (entry != null && isFresh(entry)) {
+            return entry.json;
+        }
+        return entries.compute(count, (key, oldEntry) -> oldEntry != null && isFresh(oldEntry) ? oldEntry : build(key))
+                .json;
+    }
+
+    private boolean isFresh(Entry entry) {
+        return entry.ratingVersion == filmService.getRatingVersion()
+                || System.nanoTime() - entry.builtAt < maxStalenessNanos;
+    }
+
+    private Entry build(int count) {
+        // Read before the rating, so that a change made during the build leads to another one
+        long ratingVersion = filmService.getRatingVersion();
+        return new Entry(ratingVersion, System.nanoTime(), serialize(filmService.getMostPopularFilms(count)));
+    }
+
+    private byte[] serialize(Object films) {
+        try {
+            return objectMapper.writeValueAsBytes(films);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Entry {
+
+        final long ratingVersion;
+        final long builtAt;
+        final byte[] json;
+
+        Entry(long ratingVersion, long builtAt, byte[] json) {
+            this.ratingVersion = ratingVersion;
+            this.builtAt = builtAt;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+/**
+ * Binds the window of the trending films by its value, such as 24h. An unknown one fails the binding
+ * of the parameter, which is answered with 400.
+ */
+@Component
+public class TrendingWindowConverter implements Converter<String, TrendingWindow> {
+
+    @Override
+    public TrendingWindow convert(String value) {
+        return TrendingWindow.fromValue(value);
+    }
+}
@@ -1,18 +1,33 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FriendshipMutation;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+import java.util.List;
 
 @RestController
+@Validated
 @RequiredArgsConstructor
 public class UserController {
 
     private final UserService userService;
+    private final NdjsonStreamingWriter ndjsonStreamingWriter;
+    private final EntityTags entityTags;
+
+    private final static int DEFAULT_PAGE_LIMIT = 100;
+    private final static String DEFAULT_RECOMMENDATIONS_COUNT = "10";
 
     @GetMapping(value = "/users/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     public User getUser(@PathVariable Integer id) {
@@ -29,9 +44,28 @@ public class UserController {
         return userService.updateUser(user);
     }
 
+    @PostMapping(value = "/users/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult<User>> createUsers(@RequestBody List<User> users) {
+        return userService.createUsers(users);
+    }
+
+    @PutMapping(value = "/users/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult<User>> updateUsers(@RequestBody List<User> users) {
+        return userService.updateUsers(users);
+    }
+
     @GetMapping(value = "/users", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Iterable<User> getAllUsers() {
-        return userService.getAllUsers();
+    public Iterable<User> getAllUsers(@RequestParam(required = false) Integer after,
+                                      @RequestParam(required = false) @Positive Integer limit) {
+        if (after == null && limit == null) {
+            return userService.getAllUsers();
+        }
+        return userService.getUsersPage(after, limit == null ? DEFAULT_PAGE_LIMIT : limit);
+    }
+
+    @GetMapping(value = "/users", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        return ndjsonStreamingWriter.stream(userService.getAllUsers());
     }
 
     @PutMapping(value = "/users/{id}/friends/{friendId}", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -44,13 +78,32 @@ public class UserController {
         return userService.removeFriend(friendId, userId);
     }
 
+    @PostMapping(value = "/users/friends/batch", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult<FriendshipMutation>> applyFriendships(@RequestBody List<FriendshipMutation> mutations) {
+        return userService.applyFriendships(mutations);
+    }
+
     @GetMapping(value = "/users/{id}/friends", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Iterable<User> getUserFriends(@PathVariable("id") Integer userId) {
-        return userService.getUserFriends(userId);
+    public ResponseEntity<Iterable<User>> getUserFriends(@PathVariable("id") Integer userId, WebRequest request) {
+        // The user is read first, so the tag may only be older than the friends listed
+        User user = userService.getUserById(userId);
+        Iterable<User> friends = userService.getUserFriends(userId);
+        String eTag = entityTags.ofFriends(user, friends);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(friends);
     }
 
     @GetMapping(value = "/users/{id}/friends/common/{otherId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public Iterable<User> getMutualFriends(@PathVariable Integer id, @PathVariable Integer otherId) {
         return userService.getMutualFriends(id, otherId);
     }
+
+    @GetMapping(value = "/users/{id}/recommendations", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<User> getRecommendedFriends(@PathVariable("id") Integer userId,
+                                            @RequestParam(defaultValue = DEFAULT_RECOMMENDATIONS_COUNT)
+                                            @Positive Integer count) {
+        return userService.getRecommendedFriends(userId, count);
+    }
 }
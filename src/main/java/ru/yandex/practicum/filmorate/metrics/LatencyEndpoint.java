@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies of the service and repository calls in milliseconds, one entry per class, method
+ * and exception, served at /actuator/latencies. Percentiles are those configured for the timers
+ * with management.metrics.distribution.percentiles and cover the last couple of minutes.
+ */
+@Component
+@Endpoint(id = "latencies")
+@RequiredArgsConstructor
+public class LatencyEndpoint {
+
+    private final MeterRegistry meterRegistry;
+
+    @ReadOperation
+    public Map<String, Map<String, Map<String, Number>>> latencies() {
+        Map<String, Map<String, Map<String, Number>>> latencies = new LinkedHashMap<>();
+        latencies.put(MetricsAspect.SERVICE_TIMER, getLatencies(MetricsAspect.SERVICE_TIMER));
+        latencies.put(MetricsAspect.REPOSITORY_TIMER, getLatencies(MetricsAspect.REPOSITORY_TIMER));
+        return latencies;
+    }
+
+    private Map<String, Map<String, Number>> getLatencies(String timerName) {
+        Map<String, Map<String, Number>> latencies = new TreeMap<>();
+        for (Timer timer : meterRegistry.find(timerName).timers()) {
+            String exception = timer.getId().getTag("exception");
+            String key = timer.getId().getTag("class") + "." + timer.getId().getTag("method")
+                    + ("none".equals(exception) ? "" : " (" + exception + ")");
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            Map<String, Number> values = new LinkedHashMap<>();
+            values.put("count", snapshot.count());
+            values.put("mean", snapshot.mean(TimeUnit.MILLISECONDS));
+            values.put("max", snapshot.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                String name = BigDecimal.valueOf(percentile.percentile() * 100).stripTrailingZeros().toPlainString();
+                values.put("p" + name, percentile.value(TimeUnit.MILLISECONDS));
+            }
+            latencies.put(key, values);
+        }
+        return latencies;
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public method of the services and every repository operation, tagged by the class,
+ * the method and the exception it has thrown. Batch service methods also record the batch size.
+ * Meters of successful calls are looked up once per class and method, failed calls register
+ * their meter every time, as they are rare and tagged by the exception.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class MetricsAspect {
+
+    public static final String SERVICE_TIMER = "filmorate.service";
+
+    public static final String REPOSITORY_TIMER = "filmorate.repository";
+
+    public static final String BATCH_SIZE_SUMMARY = "filmorate.service.batch.size";
+
+    private static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Class<?>, Map<Method, Timer>> serviceTimers = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, Map<Method, Timer>> repositoryTimers = new ConcurrentHashMap<>();
+
+    @Pointcut("execution(public * ru.yandex.practicum.filmorate.service.FilmService.*(..))"
+            + " || execution(public * ru.yandex.practicum.filmorate.service.UserService.*(..))")
+    public void serviceMethod() {
+    }
+
+    @Pointcut("execution(* ru.yandex.practicum.filmorate.storage.AbstractRepository.*(..))"
+            + " || execution(* ru.yandex.practicum.filmorate.storage.FilmRepository.*(..))"
+            + " || execution(* ru.yandex.practicum.filmorate.storage.UserRepository.*(..))"
+            + " || execution(* ru.yandex.practicum.filmorate.storage.LikeRepository.*(..))"
+            + " || execution(* ru.yandex.practicum.filmorate.storage.FriendshipRepository.*(..))")
+    public void repositoryMethod() {
+    }
+
+    @Around("serviceMethod()")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object[] args = joinPoint.getArgs();
+        if (args.length > 0 && args[0] instanceof Collection) {
+            DistributionSummary.builder(BATCH_SIZE_SUMMARY)
+                    .tags("class", getClassName(joinPoint), "method", getMethod(joinPoint).getName())
+                    .register(meterRegistry)
+                    .record(((Collection<?>) args[0]).size());
+        }
+        return time(SERVICE_TIMER, serviceTimers, joinPoint);
+    }
+
+    @Around("repositoryMethod()")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(REPOSITORY_TIMER, repositoryTimers, joinPoint);
+    }
+
+    private Object time(String name, Map<Class<?>, Map<Method, Timer>> timers, ProceedingJoinPoint joinPoint)
+            throws Throwable {
+        long startTime = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            register(name, joinPoint, e.getClass().getSimpleName())
+                    .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        timers.computeIfAbsent(joinPoint.getTarget().getClass(), targetClass -> new ConcurrentHashMap<>())
+                .computeIfAbsent(getMethod(joinPoint), method -> register(name, joinPoint, NO_EXCEPTION))
+                .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private Timer register(String name, ProceedingJoinPoint joinPoint, String exception) {
+        return Timer.builder(name)
+                .tags("class", getClassName(joinPoint), "method", getMethod(joinPoint).getName(),
+                        "exception", exception)
+                .register(meterRegistry);
+    }
+
+    private static Method getMethod(ProceedingJoinPoint joinPoint) {
+        return ((MethodSignature) joinPoint.getSignature()).getMethod();
+    }
+
+    private static String getClassName(ProceedingJoinPoint joinPoint) {
+        return joinPoint.getTarget().getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.FilmRepository;
+import ru.yandex.practicum.filmorate.storage.FriendshipRepository;
+import ru.yandex.practicum.filmorate.storage.LikeRepository;
+import ru.yandex.practicum.filmorate.storage.UserRepository;
+
+/**
+ * Sizes of the storage, read from the repositories whenever the registry is scraped.
+ */
+@Component
+@RequiredArgsConstructor
+public class StorageMetrics implements MeterBinder {
+
+    private final FilmRepository filmRepository;
+    private final UserRepository userRepository;
+    private final LikeRepository likeRepository;
+    private final FriendshipRepository friendshipRepository;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.films", filmRepository, FilmRepository::count)
+                .description("Films in the catalog")
+                .register(registry);
+        Gauge.builder("filmorate.users", userRepository, UserRepository::count)
+                .description("Registered users")
+                .register(registry);
+        Gauge.builder("filmorate.friendships", friendshipRepository, FriendshipRepository::countFriendships)
+                .description("Friendships, each of them counted once")
+                .register(registry);
+        Gauge.builder("filmorate.likes", likeRepository, LikeRepository::countLikes)
+                .description("Likes of all films")
+                .register(registry);
+    }
+}
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.model;
+
+public enum BatchItemStatus {
+    CREATED,
+    UPDATED,
+    APPLIED,
+    UNCHANGED,
+    INVALID,
+    NOT_FOUND
+}
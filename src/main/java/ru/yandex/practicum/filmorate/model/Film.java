@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -10,6 +11,7 @@ import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
 import lombok.Builder;
 import lombok.Value;
 import lombok.With;
+import ru.yandex.practicum.filmorate.util.StripedCounter;
 import ru.yandex.practicum.filmorate.validator.ReleaseDate;
 
 import javax.validation.constraints.NotBlank;
@@ -18,7 +20,7 @@ import javax.validation.constraints.Positive;
 import javax.validation.constraints.Size;
 import java.time.LocalDate;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 @Value
 @Builder
@@ -51,7 +53,14 @@ public class Film {
     @Positive
     Integer duration;
 
-    AtomicInteger likesCount = new AtomicInteger();
+    // Striped, as a premiere gets many likes at once
+    @With
+    StripedCounter likesCount;
+
+    // Moved after every change of the film or its likes, never serialized; striped as the likes count
+    @With
+    @JsonIgnore
+    LongAdder version;
 
     @JsonCreator
     public Film(
@@ -63,11 +72,32 @@ public class Film {
             @JsonDeserialize(using = LocalDateDeserializer.class)
             @JsonProperty("releaseDate") LocalDate releaseDate,
             @JsonProperty("duration") Integer duration) {
+        this(id, name, description, releaseDate, duration, new StripedCounter());
+    }
+
+    public Film(Integer id,
+                String name,
+                String description,
+                LocalDate releaseDate,
+                Integer duration,
+                StripedCounter likesCount) {
+        this(id, name, description, releaseDate, duration, likesCount, new LongAdder());
+    }
+
+    public Film(Integer id,
+                String name,
+                String description,
+                LocalDate releaseDate,
+                Integer duration,
+                StripedCounter likesCount,
+                LongAdder version) {
         this.id = id;
         this.name = name;
         this.description = description;
         this.releaseDate = releaseDate;
         this.duration = duration;
+        this.likesCount = likesCount == null ? new StripedCounter() : likesCount;
+        this.version = version == null ? new LongAdder() : version;
     }
 
     @Override
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Value;
+
+import javax.validation.constraints.AssertFalse;
+import javax.validation.constraints.NotNull;
+
+@Value
+@Builder
+public class FriendshipMutation {
+
+    @NotNull
+    Integer userId;
+
+    @NotNull
+    Integer friendId;
+
+    @NotNull
+    MutationAction action;
+
+    @JsonCreator
+    public FriendshipMutation(
+            @JsonProperty("userId") Integer userId,
+            @JsonProperty("friendId") Integer friendId,
+            @JsonProperty("action") MutationAction action) {
+        this.userId = userId;
+        this.friendId = friendId;
+        this.action = action;
+    }
+
+    @JsonIgnore
+    @AssertFalse(message = "User must not be friend of himself.")
+    public boolean isSelfFriendship() {
+        return userId != null && userId.equals(friendId);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Builder;
+import lombok.Value;
+
+import javax.validation.constraints.NotNull;
+
+@Value
+@Builder
+public class LikeMutation {
+
+    @NotNull
+    Integer userId;
+
+    @NotNull
+    Integer filmId;
+
+    @NotNull
+    MutationAction action;
+
+    @JsonCreator
+    public LikeMutation(
+            @JsonProperty("userId") Integer userId,
+            @JsonProperty("filmId") Integer filmId,
+            @JsonProperty("action") MutationAction action) {
+        this.userId = userId;
+        this.filmId = filmId;
+        this.action = action;
+    }
+}
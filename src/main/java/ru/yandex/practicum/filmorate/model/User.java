@@ -2,22 +2,24 @@ package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
 import lombok.Value;
 import lombok.With;
+import ru.yandex.practicum.filmorate.util.IntSet;
 
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Past;
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Value
 @Builder
@@ -48,9 +50,17 @@ public class User {
     @JsonDeserialize(using = LocalDateDeserializer.class)
     LocalDate birthday;
 
-    Set<Integer> friends = new HashSet<>();
+    @With
+    IntSet friends;
+
+    @With
+    IntSet likedFilms;
 
-    Set<Integer> likedFilms = new HashSet<>();
+    // Moved after every change of the user, their friends or likes, never serialized
+    @With
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    AtomicLong version;
 
     @JsonCreator
     public User(
@@ -62,10 +72,34 @@ public class User {
             @JsonSerialize(using = LocalDateSerializer.class)
             @JsonDeserialize(using = LocalDateDeserializer.class)
             @JsonProperty("birthday") LocalDate birthday) {
+        this(id, email, login, name, birthday, new IntSet(), new IntSet());
+    }
+
+    public User(Integer id,
+                String email,
+                String login,
+                String name,
+                LocalDate birthday,
+                IntSet friends,
+                IntSet likedFilms) {
+        this(id, email, login, name, birthday, friends, likedFilms, new AtomicLong());
+    }
+
+    public User(Integer id,
+                String email,
+                String login,
+                String name,
+                LocalDate birthday,
+                IntSet friends,
+                IntSet likedFilms,
+                AtomicLong version) {
         this.id = id;
         this.email = email;
         this.login = login;
         this.name = name;
         this.birthday = birthday;
+        this.friends = friends == null ? new IntSet() : friends;
+        this.likedFilms = likedFilms == null ? new IntSet() : likedFilms;
+        this.version = version == null ? new AtomicLong() : version;
     }
 }
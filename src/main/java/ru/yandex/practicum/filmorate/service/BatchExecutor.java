@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang3.StringUtils.uncapitalize;
+
+/**
+ * Validates every item of a batch, passes the valid ones to a single bulk repository call
+ * and reports an outcome per item in the order of the request.
+ */
+@Component
+@RequiredArgsConstructor
+public class BatchExecutor {
+
+    private static final String ERROR_MES_FORMAT = "Validation exception [class: '%s', field: '%s', mes: '%s']";
+
+    private final Validator validator;
+
+    /**
+     * @param operation  bulk repository call; returns persisted items in the same order, null for a missing one
+     * @param notFound   exception whose message explains a missing item
+     */
+    public <T> List<BatchItemResult<T>> execute(List<T> items,
+                                                UnaryOperator<List<T>> operation,
+                                                BatchItemStatus successStatus,
+                                                Function<T, RuntimeException> notFound) {
+        List<BatchItemResult<T>> results = new ArrayList<>(Collections.nCopies(items.size(), null));
+        List<Integer> validIndexes = validate(items, results);
+        List<T> validItems = select(items, validIndexes);
+        List<T> persistedItems = validItems.isEmpty() ? validItems : operation.apply(validItems);
+        for (int i = 0; i < validIndexes.size(); i++) {
+            int index = validIndexes.get(i);
+            T persistedItem = persistedItems.get(i);
+            results.set(index, persistedItem == null
+                    ? rejected(index, BatchItemStatus.NOT_FOUND, validItems.get(i),
+                            List.of(notFound.apply(validItems.get(i)).getMessage()))
+                    : accepted(index, successStatus, persistedItem));
+        }
+        return results;
+    }
+
+    /**
+     * @param findMissing  message about an entity the mutation refers to and which does not exist, null if all do
+     * @param operation    bulk repository call; tells for every mutation whether it has changed anything
+     */
+    public <T> List<BatchItemResult<T>> executeMutations(List<T> mutations,
+                                                         Function<T, String> findMissing,
+                                                         Function<List<T>, boolean[]> operation) {
+        List<BatchItemResult<T>> results = new ArrayList<>(Collections.nCopies(mutations.size(), null));
+        List<Integer> applicableIndexes = new ArrayList<>(mutations.size());
+        for (int index : validate(mutations, results)) {
+            T mutation = mutations.get(index);
+            String missingMes = findMissing.apply(mutation);
+            if (missingMes == null) {
+                applicableIndexes.add(index);
+            } else {
+                results.set(index, rejected(index, BatchItemStatus.NOT_FOUND, mutation, List.of(missingMes)));
+            }
+        }
+        List<T> applicableMutations = select(mutations, applicableIndexes);
+        boolean[] changed = applicableMutations.isEmpty() ? new boolean[0] : operation.apply(applicableMutations);
+        for (int i = 0; i < applicableIndexes.size(); i++) {
+            int index = applicableIndexes.get(i);
+            results.set(index, accepted(index,
+                    changed[i] ? BatchItemStatus.APPLIED : BatchItemStatus.UNCHANGED, applicableMutations.get(i)));
+        }
+        return results;
+    }
+
+    // Fills in results of invalid items and returns indexes of the valid ones
+    private <T> List<Integer> validate(List<T> items, List<BatchItemResult<T>> results) {
+        List<Integer> validIndexes = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            T item = items.get(i);
+            List<String> reasons = validate(item);
+            if (reasons.isEmpty()) {
+                validIndexes.add(i);
+            } else {
+                results.set(i, rejected(i, BatchItemStatus.INVALID, item, reasons));
+            }
+        }
+        return validIndexes;
+    }
+
+    private <T> List<String> validate(T item) {
+        if (item == null) {
+            return List.of("Batch item must not be null.");
+        }
+        return validator.validate(item)
+                .stream()
+                .map(violation -> getErrorString(item, violation))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static <T> List<T> select(List<T> items, List<Integer> indexes) {
+        List<T> selectedItems = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            selectedItems.add(items.get(index));
+        }
+        return selectedItems;
+    }
+
+    private static <T> BatchItemResult<T> accepted(int index, BatchItemStatus status, T item) {
+        return BatchItemResult.<T>builder()
+                .index(index)
+                .status(status)
+                .entity(item)
+                .build();
+    }
+
+    private static <T> BatchItemResult<T> rejected(int index, BatchItemStatus status, T item, List<String> reasons) {
+        return BatchItemResult.<T>builder()
+                .index(index)
+                .status(status)
+                .entity(item)
+                .reasons(reasons)
+                .build();
+    }
+
+    private static <T> String getErrorString(T item, ConstraintViolation<T> violation) {
+        return String.format(ERROR_MES_FORMAT,
+                uncapitalize(item.getClass().getSimpleName()), violation.getPropertyPath(), violation.getMessage());
+    }
+}
@@ -0,0 +1,262 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.LikeListener;
+import ru.yandex.practicum.filmorate.storage.UserRepository;
+import ru.yandex.practicum.filmorate.util.IntCounter;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Item-to-item recommendations from co-likes: how many users liked both films. Counts are updated
+ * as the like repository applies likes, pairing the film with the other films the user liked at that
+ * moment, so a batch or concurrent likes of one user count every pair once. Every film keeps
+ * at most twice neighborsCount counters, replacing the smallest one when a new neighbor comes
+ * (the Space-Saving summary), so memory is linear in the catalog and the counts of the top
+ * neighbors are close estimates. Users with more than maxUserLikes liked films are paired
+ * with an even sample of them, which bounds the cost of a like.
+ */
+@Slf4j
+@Component
+public class FilmRecommender implements LikeListener, SmartInitializingSingleton {
+
+    private final UserRepository userRepository;
+
+    private final int neighborsCount;
+
+    private final int maxUserLikes;
+
+    // Replaced as a whole by a rebuild, so a reader never sees the counts half cleared
+    private volatile Map<Integer, CoLikes> coLikes = new ConcurrentHashMap<>();
+
+    // The running or the last rebuild
+    private volatile Rebuild lastRebuild;
+
+    public FilmRecommender(UserRepository userRepository,
+                           @Value("${filmorate.film-recommendations.neighbors}") int neighborsCount,
+                           @Value("${filmorate.film-recommendations.max-user-likes}") int maxUserLikes) {
+        this.userRepository = userRepository;
+        this.neighborsCount = neighborsCount;
+        this.maxUserLikes = maxUserLikes;
+    }
+
+    /**
+     * Rebuilds the counts once the repositories have been restored, before the web server starts.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Counts the likes of all the users into new counts, which then replace the current ones. A like
+     * applied meanwhile goes to the current counts and, once its user has been counted, to the new ones
+     * as well. Users are counted under the monitor of their liked films, under which the in-memory
+     * repository reports the likes, so every like is counted exactly once.
+     */
+    public synchronized void rebuild() {
+        Rebuild rebuild = new Rebuild();
+        lastRebuild = rebuild;
+        long likesCount = 0;
+        for (User user : userRepository.findAll()) {
+            IntSet likedFilms = user.getLikedFilms();
+            synchronized (likedFilms) {
+                int[] filmIds = sample(likedFilms.toArray());
+                for (int i = 0; i < filmIds.length; i++) {
+                    for (int j = i + 1; j < filmIds.length; j++) {
+                        coLikesOf(rebuild.coLikes, filmIds[i]).increment(filmIds[j]);
+                        coLikesOf(rebuild.coLikes, filmIds[j]).increment(filmIds[i]);
+                    }
+                }
+                rebuild.countedUserIds.add(user.getId());
+                likesCount += filmIds.length;
+            }
+        }
+        coLikes = rebuild.coLikes;
+        rebuild.finish();
+        log.info("Co-likes of {} films have been built from {} likes.", rebuild.coLikes.size(), likesCount);
+    }
+
+    @Override
+    public void likeAdded(int userId, int filmId, int[] otherFilmIds) {
+        int[] sample = sample(otherFilmIds);
+        apply(userId, counts -> {
+            CoLikes filmCoLikes = coLikesOf(counts, filmId);
+            for (int otherFilmId : sample) {
+                filmCoLikes.increment(otherFilmId);
+                coLikesOf(counts, otherFilmId).increment(filmId);
+            }
+        });
+    }
+
+    @Override
+    public void likeRemoved(int userId, int filmId, int[] otherFilmIds) {
+        int[] sample = sample(otherFilmIds);
+        apply(userId, counts -> {
+            CoLikes filmCoLikes = counts.get(filmId);
+            for (int otherFilmId : sample) {
+                if (filmCoLikes != null) {
+                    filmCoLikes.decrement(otherFilmId);
+                }
+                CoLikes otherCoLikes = counts.get(otherFilmId);
+                if (otherCoLikes != null) {
+                    otherCoLikes.decrement(filmId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Ids of up to count films most often liked together with the film.
+     */
+    public int[] findSimilar(int filmId, int count) {
+        CoLikes filmCoLikes = coLikes.get(filmId);
+        return filmCoLikes == null ? new int[0] : filmCoLikes.top(Math.min(count, neighborsCount));
+    }
+
+    /**
+     * Ids of up to count films the user has not liked, scored by their co-likes with the films the user has.
+     */
+    public int[] recommend(User user, int count) {
+        IntSet likedFilms = user.getLikedFilms();
+        IntCounter scores = new IntCounter();
+        for (int likedFilmId : sample(likedFilms.toArray())) {
+            CoLikes filmCoLikes = coLikes.get(likedFilmId);
+            if (filmCoLikes != null) {
+                filmCoLikes.addTo(scores);
+            }
+        }
+        return scores.top(count, likedFilms::contains);
+    }
+
+    // The current counts, and the ones being rebuilt if the user has already been counted into them
+    private void apply(int userId, Consumer<Map<Integer, CoLikes>> update) {
+        Map<Integer, CoLikes> counts = coLikes;
+        update.accept(counts);
+        Rebuild rebuild = lastRebuild;
+        if (rebuild != null && rebuild.coLikes != counts && rebuild.isCounted(userId)) {
+            update.accept(rebuild.coLikes);
+        }
+    }
+
+    private CoLikes coLikesOf(Map<Integer, CoLikes> counts, int filmId) {
+        return counts.computeIfAbsent(filmId, id -> new CoLikes(neighborsCount * 2));
+    }
+
+    // Up to maxUserLikes ids spread evenly over the sorted ids
+    private int[] sample(int[] filmIds) {
+        if (filmIds.length <= maxUserLikes) {
+            return filmIds;
+        }
+        int[] sample = new int[maxUserLikes];
+        for (int i = 0; i < maxUserLikes; i++) {
+            sample[i] = filmIds[(int) ((long) i * filmIds.length / maxUserLikes)];
+        }
+        return sample;
+    }
+
+    /**
+     * Counts being rebuilt and the users already counted into them, all of them once finished.
+     */
+    private static class Rebuild {
+
+        final Map<Integer, CoLikes> coLikes = new ConcurrentHashMap<>();
+
+        volatile Set<Integer> countedUserIds = ConcurrentHashMap.newKeySet();
+
+        boolean isCounted(int userId) {
+            Set<Integer> userIds = countedUserIds;
+            return userIds == null || userIds.contains(userId);
+        }
+
+        void finish() {
+            countedUserIds = null;
+        }
+    }
+
+    /**
+     * Space-Saving summary of the co-likes of a film in parallel arrays, small enough for linear scans.
+     */
+    static class CoLikes {
+
+        private final int[] filmIds;
+        private final int[] counts;
+        private int size;
+
+        CoLikes(int capacity) {
+            filmIds = new int[capacity];
+            counts = new int[capacity];
+        }
+
+        synchronized void increment(int filmId) {
+            int index = indexOf(filmId);
+            if (index < 0) {
+                if (size < filmIds.length) {
+                    // The slot past the end may keep a stale count after a decrement has moved its neighbor
+                    index = size++;
+                    counts[index] = 0;
+                } else {
+                    // The new neighbor takes over the smallest count, which bounds its error
+                    index = 0;
+                    for (int i = 1; i < size; i++) {
+                        if (counts[i] < counts[index]) {
+                            index = i;
+                        }
+                    }
+                }
+                filmIds[index] = filmId;
+            }
+            counts[index]++;
+        }
+
+        synchronized void decrement(int filmId) {
+            int index = indexOf(filmId);
+            if (index < 0) {
+                return;
+            }
+            if (--counts[index] == 0) {
+                size--;
+                filmIds[index] = filmIds[size];
+                counts[index] = counts[size];
+            }
+        }
+
+        synchronized int[] top(int count) {
+            // Count descending and id ascending in a single long, as in IntCounter
+            long[] ranked = new long[size];
+            for (int i = 0; i < size; i++) {
+                ranked[i] = ((long) (Integer.MAX_VALUE - counts[i]) << 32) | filmIds[i];
+            }
+            Arrays.sort(ranked);
+            int[] result = new int[Math.min(count, size)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (int) ranked[i];
+            }
+            return result;
+        }
+
+        synchronized void addTo(IntCounter scores) {
+            for (int i = 0; i < size; i++) {
+                scores.add(filmIds[i], counts[i]);
+            }
+        }
+
+        private int indexOf(int filmId) {
+            for (int i = 0; i < size; i++) {
+                if (filmIds[i] == filmId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
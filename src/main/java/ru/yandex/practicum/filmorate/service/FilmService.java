@@ -3,12 +3,26 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.audit.AuditEventType;
+import ru.yandex.practicum.filmorate.audit.AuditLog;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.MutationAction;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.AbstractRepository;
+import ru.yandex.practicum.filmorate.storage.FilmRepository;
+import ru.yandex.practicum.filmorate.storage.LikeRepository;
 
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -16,11 +30,16 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class FilmService {
 
-    private static final Comparator<Film> filmPopularityComparator = Comparator
-            .comparing((Film film) -> film.getLikesCount().intValue()).reversed();
-
-    private final AbstractRepository<Film> filmRepository;
+    private final FilmRepository filmRepository;
+    private final LikeRepository likeRepository;
     private final UserService userService;
+    private final BatchExecutor batchExecutor;
+    private final AuditLog auditLog;
+    private final FilmRecommender filmRecommender;
+    private final TrendingFilms trendingFilms;
+
+    // Moved after every change which may alter the rating or the films in it; striped, as every like moves it
+    private final LongAdder ratingVersion = new LongAdder();
 
     public Film getFilmById(Integer filmId) {
         Film film = filmRepository.findById(filmId);
@@ -31,52 +50,188 @@ public class FilmService {
     }
 
     public Film createFilm(Film film) {
-        return filmRepository.save(film);
+        Film createdFilm = filmRepository.save(film);
+        ratingVersion.increment();
+        auditLog.record(AuditEventType.FILM_CREATED, createdFilm.getId());
+        return createdFilm;
     }
 
     public Film updateFilm(Film film) {
         if (film.getId() == null) {
             throw new FilmNotFoundException(film);
         }
-        return filmRepository.update(film);
+        Film updatedFilm = filmRepository.update(film);
+        ratingVersion.increment();
+        auditLog.record(AuditEventType.FILM_UPDATED, updatedFilm.getId());
+        return updatedFilm;
+    }
+
+    public List<BatchItemResult<Film>> createFilms(List<Film> films) {
+        return changingRating(batchExecutor.execute(films, filmRepository::saveAll, BatchItemStatus.CREATED,
+                FilmNotFoundException::new));
+    }
+
+    public List<BatchItemResult<Film>> updateFilms(List<Film> films) {
+        return changingRating(batchExecutor.execute(films, filmRepository::updateAll, BatchItemStatus.UPDATED,
+                FilmNotFoundException::new));
     }
 
     public Iterable<Film> getAllFilms() {
         return filmRepository.findAll();
     }
 
+    public Iterable<Film> getFilmsPage(Integer afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive.");
+        }
+        return filmRepository.findAllAfter(afterId, limit);
+    }
+
     public Film addLike(Integer userId, Integer filmId) {
         User user = userService.getUserById(userId);
         Film film = getFilmById(filmId);
-        boolean isAdded = user.getLikedFilms().add(filmId);
+        boolean isAdded = likeRepository.addLike(user, film);
         if (isAdded) {
-            log.info("User with id={} has liked film '{}'.", user.getId(), film.getName());
-            film.getLikesCount().incrementAndGet();
+            ratingVersion.increment();
+            trendingFilms.likeAdded(film.getId());
+            auditLog.record(AuditEventType.LIKE_ADDED, user.getId(), film.getId());
         } else {
-            log.info("User with id={} already has liked film '{}'.", user.getId(), film.getName());
+            auditLog.record(AuditEventType.LIKE_ALREADY_ADDED, user.getId(), film.getId());
         }
-        return film;
+        // Read again, as a database repository leaves the film it was given as it is
+        return isAdded ? getFilmById(filmId) : film;
     }
 
     public Film removeLike(Integer userId, Integer filmId) {
         User user = userService.getUserById(userId);
         Film film = getFilmById(filmId);
-        boolean isRemoved = user.getLikedFilms().remove(filmId);
+        boolean isRemoved = likeRepository.removeLike(user, film);
         if (isRemoved) {
-            log.info("User with id={} has removed like from film '{}'.", user.getId(), film.getName());
-            film.getLikesCount().decrementAndGet();
+            ratingVersion.increment();
+            trendingFilms.likeRemoved(film.getId());
+            auditLog.record(AuditEventType.LIKE_REMOVED, user.getId(), film.getId());
         } else {
-            log.info("User with id={} has not liked film '{}'.", user.getId(), film.getName());
+            auditLog.record(AuditEventType.LIKE_NOT_FOUND, user.getId(), film.getId());
         }
-        return film;
+        // Read again, as a database repository leaves the film it was given as it is
+        return isRemoved ? getFilmById(filmId) : film;
+    }
+
+    public List<BatchItemResult<LikeMutation>> applyLikes(List<LikeMutation> mutations) {
+        Map<Integer, User> users = userService.getUsersByIds(mutations
+                .stream()
+                .filter(Objects::nonNull)
+                .map(LikeMutation::getUserId)
+                .collect(Collectors.toList()));
+        Map<Integer, Film> films = mutations
+                .stream()
+                .filter(Objects::nonNull)
+                .map(LikeMutation::getFilmId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .map(filmRepository::findById)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        List<BatchItemResult<LikeMutation>> results = batchExecutor.executeMutations(mutations,
+                mutation -> findMissing(mutation, users, films),
+                applicableMutations -> likeRepository.applyLikes(applicableMutations, users, films));
+        long appliedCount = 0;
+        for (BatchItemResult<LikeMutation> result : results) {
+            if (result.getStatus() == BatchItemStatus.APPLIED) {
+                LikeMutation mutation = result.getEntity();
+                if (mutation.getAction() == MutationAction.ADD) {
+                    trendingFilms.likeAdded(mutation.getFilmId());
+                } else {
+                    trendingFilms.likeRemoved(mutation.getFilmId());
+                }
+                appliedCount++;
+            }
+        }
+        if (appliedCount > 0) {
+            ratingVersion.increment();
+        }
+        log.info("{} of {} like mutations have been applied.", appliedCount, mutations.size());
+        return results;
     }
 
     public Iterable<Film> getMostPopularFilms(int count) {
-        return filmRepository
-                .findAll()
+        return filmRepository.findMostPopular(count);
+    }
+
+    /**
+     * Films with all the words of the query in their name or description, the last one possibly unfinished.
+     */
+    public List<Film> searchFilms(String query, int count) {
+        checkCount(count);
+        return filmRepository.search(query, count);
+    }
+
+    /**
+     * Films with the most likes over the last hour, day or week.
+     */
+    public List<Film> getTrendingFilms(TrendingWindow window, int count) {
+        checkCount(count);
+        return trendingFilms
+                .getTopFilmIds(window, count)
                 .stream()
-                .sorted(filmPopularityComparator)
-                .limit(count)
+                .map(filmRepository::findById)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Films most often liked together with the film.
+     */
+    public List<Film> getSimilarFilms(Integer filmId, int count) {
+        checkCount(count);
+        getFilmById(filmId);
+        return findAllByIds(filmRecommender.findSimilar(filmId, count));
+    }
+
+    /**
+     * Films the user has not liked, most often liked together with the films the user has.
+     */
+    public List<Film> getRecommendedFilms(Integer userId, int count) {
+        checkCount(count);
+        return findAllByIds(filmRecommender.recommend(userService.getUserById(userId), count));
+    }
+
+    /**
+     * Version of the rating, which changes whenever a film is created or updated or its likes change.
+     */
+    public long getRatingVersion() {
+        return ratingVersion.sum();
+    }
+
+    private <T> List<BatchItemResult<T>> changingRating(List<BatchItemResult<T>> results) {
+        if (results.stream().anyMatch(result -> result.getStatus() != BatchItemStatus.INVALID
+                && result.getStatus() != BatchItemStatus.NOT_FOUND)) {
+            ratingVersion.increment();
+        }
+        return results;
+    }
+
+    private List<Film> findAllByIds(int[] filmIds) {
+        return Arrays
+                .stream(filmIds)
+                .mapToObj(filmRepository::findById)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
+
+    private static void checkCount(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Films count must be positive.");
+        }
+    }
+
+    private static String findMissing(LikeMutation mutation, Map<Integer, User> users, Map<Integer, Film> films) {
+        if (!users.containsKey(mutation.getUserId())) {
+            return new UserNotFoundException(mutation.getUserId()).getMessage();
+        }
+        if (!films.containsKey(mutation.getFilmId())) {
+            return new FilmNotFoundException(mutation.getFilmId()).getMessage();
+        }
+        return null;
+    }
 }
@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserRepository;
+import ru.yandex.practicum.filmorate.util.IntCounter;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Friends of friends ranked by the number of mutual friends, counted in an {@link IntCounter} over
+ * the friend sets. Only maxFanOut friends of the user and maxFanOut friends of each of them are visited,
+ * picked evenly across the sorted ids, so hubs cost bounded time and their counts become estimates.
+ * Friends of users with many friends are counted in parallel on the common ForkJoinPool.
+ * <p>
+ * The top {@link #MAX_CACHED_COUNT} ids are cached per user until a friendship of the user or of one
+ * of the friends changes. An invalidation also prevents the recommendations computed before it
+ * from being cached, so that a stale ranking cannot outlive the change.
+ */
+@Component
+public class FriendRecommender {
+
+    // Larger requests are rare and computed every time
+    static final int MAX_CACHED_COUNT = 100;
+
+    static final int PARALLEL_MIN_FRIENDS = 256;
+
+    private static final int COUNTING_LEAF_SIZE = 64;
+
+    private final UserRepository userRepository;
+
+    private final int maxFanOut;
+
+    private final Cache<Integer, int[]> recommendations;
+
+    private final AtomicLong invalidationsCount = new AtomicLong();
+
+    public FriendRecommender(UserRepository userRepository,
+                             @Value("${filmorate.recommendations.max-fan-out}") int maxFanOut,
+                             @Value("${filmorate.recommendations.cache-size}") long cacheSize) {
+        this.userRepository = userRepository;
+        this.maxFanOut = maxFanOut;
+        this.recommendations = Caffeine.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    /**
+     * Ids of up to count users the user is not friends with, most mutual friends first.
+     */
+    public int[] recommend(User user, int count) {
+        if (count > MAX_CACHED_COUNT) {
+            return rank(user, count);
+        }
+        int[] userIds = recommendations.getIfPresent(user.getId());
+        if (userIds == null) {
+            long invalidationsBefore = invalidationsCount.get();
+            int[] rankedIds = rank(user, MAX_CACHED_COUNT);
+            // Atomic with the removal of the entry by an invalidation, which counts itself before that
+            userIds = recommendations.asMap().compute(user.getId(), (userId, cachedIds) ->
+                    invalidationsCount.get() == invalidationsBefore ? rankedIds : cachedIds);
+            if (userIds == null) {
+                userIds = rankedIds;
+            }
+        }
+        return userIds.length <= count ? userIds : Arrays.copyOf(userIds, count);
+    }
+
+    /**
+     * Drops the recommendations which a changed friendship between the users may affect: their own
+     * and those of their friends.
+     */
+    public void invalidate(User user, User friend) {
+        invalidationsCount.incrementAndGet();
+        for (User changedUser : new User[]{user, friend}) {
+            recommendations.invalidate(changedUser.getId());
+            for (int friendId : changedUser.getFriends().toArray()) {
+                recommendations.invalidate(friendId);
+            }
+        }
+    }
+
+    private int[] rank(User user, int count) {
+        int[] friendIds = sample(user.getFriends().toArray());
+        IntCounter mutualFriendsCounts = friendIds.length < PARALLEL_MIN_FRIENDS
+                ? countFriendsOf(friendIds, 0, friendIds.length)
+                : ForkJoinPool.commonPool().invoke(new CountingTask(friendIds, 0, friendIds.length));
+        IntSet friends = user.getFriends();
+        return mutualFriendsCounts.top(count, userId -> userId == user.getId() || friends.contains(userId));
+    }
+
+    private IntCounter countFriendsOf(int[] friendIds, int from, int to) {
+        IntCounter counter = new IntCounter();
+        for (int i = from; i < to; i++) {
+            User friend = userRepository.findById(friendIds[i]);
+            if (friend != null) {
+                for (int userId : sample(friend.getFriends().toArray())) {
+                    counter.increment(userId);
+                }
+            }
+        }
+        return counter;
+    }
+
+    // Up to maxFanOut ids spread evenly over the sorted ids
+    private int[] sample(int[] userIds) {
+        if (userIds.length <= maxFanOut) {
+            return userIds;
+        }
+        int[] sample = new int[maxFanOut];
+        for (int i = 0; i < maxFanOut; i++) {
+            sample[i] = userIds[(int) ((long) i * userIds.length / maxFanOut)];
+        }
+        return sample;
+    }
+
+    private class CountingTask extends RecursiveTask<IntCounter> {
+
+        private final int[] friendIds;
+        private final int from;
+        private final int to;
+
+        CountingTask(int[] friendIds, int from, int to) {
+            this.friendIds = friendIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntCounter compute() {
+            if (to - from <= COUNTING_LEAF_SIZE) {
+                return countFriendsOf(friendIds, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            CountingTask left = new CountingTask(friendIds, from, middle);
+            left.fork();
+            IntCounter counter = new CountingTask(friendIds, middle, to).compute();
+            counter.addAll(left.join());
+            return counter;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+import ru.yandex.practicum.filmorate.util.RefreshCoalescer;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * Likes of the films over the last hour, day and week. Every window splits into BUCKETS_COUNT
+ * buckets kept by every liked film in a ring, each slot packing the bucket number and its count
+ * in a long moved by CAS, so a like never takes a lock to advance the ring. A taken back like
+ * is subtracted from the newest bucket of the window which still has likes, so the count
+ * of a film in a window never goes below zero nor grows by itself as its buckets expire.
+ * Likes of a premiere which collide on a slot spread the film over more rings, and its
+ * refreshes in the rating of the window are coalesced.
+ */
+@Component
+public class TrendingFilms {
+
+    static final int BUCKETS_COUNT = 60;
+
+    // The number of CPUs rounded up to a power of two, as more rings than that do not collide less
+    private static final int MAX_RINGS_COUNT =
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+    private final Clock clock;
+
+    private final Map<TrendingWindow, Window> windows = new EnumMap<>(TrendingWindow.class);
+
+    @Autowired
+    public TrendingFilms() {
+        this(Clock.systemUTC());
+    }
+
+    public TrendingFilms(Clock clock) {
+        this.clock = clock;
+        for (TrendingWindow window : TrendingWindow.values()) {
+            windows.put(window, new Window(window.getDuration().toMillis() / BUCKETS_COUNT));
+        }
+    }
+
+    public void likeAdded(int filmId) {
+        long now = clock.millis();
+        for (Window window : windows.values()) {
+            window.add(filmId, now);
+        }
+    }
+
+    public void likeRemoved(int filmId) {
+        long now = clock.millis();
+        for (Window window : windows.values()) {
+            window.remove(filmId, now);
+        }
+    }
+
+    /**
+     * Ids of up to count films with the most likes in the window, ordered as the lifetime rating.
+     */
+    public List<Integer> getTopFilmIds(TrendingWindow window, int count) {
+        return windows.get(window).top(count, clock.millis());
+    }
+
+    /**
+     * The rating of a window keeps the count of every film as of its last like, which is an upper bound
+     * of the current one. The top is read by recounting the films in rating order until the next
+     * recorded count cannot beat the count-th current one, so it never scans the whole catalog,
+     * and the recounted films are moved to their current place on the way.
+     */
+    private static class Window {
+
+        private static final Comparator<Entry> RATING_ORDER = Comparator
+                .comparingInt(Entry::getLikesCount).reversed()
+                .thenComparingInt(Entry::getFilmId);
+
+        private final long bucketMillis;
+
+        private final Map<Integer, FilmBuckets> buckets = new ConcurrentHashMap<>();
+
+        private final NavigableSet<Entry> rating = new ConcurrentSkipListSet<>(RATING_ORDER);
+
+        private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+        private final RefreshCoalescer refreshCoalescer = new RefreshCoalescer();
+
+        Window(long bucketMillis) {
+            this.bucketMillis = bucketMillis;
+        }
+
+        void add(int filmId, long now) {
+            if (buckets.computeIfAbsent(filmId, id -> new FilmBuckets()).add(now / bucketMillis)) {
+                refreshCoalescer.refresh(filmId, id -> refresh(id, now));
+            }
+        }
+
+        void remove(int filmId, long now) {
+            FilmBuckets filmBuckets = buckets.get(filmId);
+            if (filmBuckets != null && filmBuckets.remove(now / bucketMillis)) {
+                refreshCoalescer.refresh(filmId, id -> refresh(id, now));
+            }
+        }
+
+        List<Integer> top(int count, long now) {
+            Comparator<Entry> worstFirst = RATING_ORDER.reversed();
+            PriorityQueue<Entry> top = new PriorityQueue<>(worstFirst);
+            Set<Integer> recounted = new HashSet<>();
+            for (Entry entry : rating) {
+                if (top.size() == count && worstFirst.compare(entry, top.peek()) <= 0) {
+                    break;
+                }
+                if (!recounted.add(entry.getFilmId())) {
+                    continue;
+                }
+                int likesCount = likesCount(entry.getFilmId(), now);
+                if (likesCount != entry.getLikesCount()) {
+                    refresh(entry.getFilmId(), now);
+                }
+                if (likesCount > 0) {
+                    top.add(new Entry(entry.getFilmId(), likesCount));
+                    if (top.size() > count) {
+                        top.poll();
+                    }
+                }
+            }
+            return top
+                    .stream()
+                    .sorted(RATING_ORDER)
+                    .map(Entry::getFilmId)
+                    .collect(Collectors.toList());
+        }
+
+        // The count is read inside compute(), so the last refresh of a film always sees its latest buckets
+        private void refresh(int filmId, long now) {
+            entries.compute(filmId, (id, oldEntry) -> {
+                int likesCount = likesCount(id, now);
+                if (oldEntry != null) {
+                    if (oldEntry.getLikesCount() == likesCount) {
+                        return oldEntry;
+                    }
+                    rating.remove(oldEntry);
+                }
+                if (likesCount == 0) {
+                    return null;
+                }
+                Entry entry = new Entry(id, likesCount);
+                rating.add(entry);
+                return entry;
+            });
+        }
+
+        private int likesCount(int filmId, long now) {
+            FilmBuckets filmBuckets = buckets.get(filmId);
+            return filmBuckets == null ? 0 : filmBuckets.likesCount(now / bucketMillis);
+        }
+    }
+
+    /**
+     * Rings of buckets of a film in a window. A film starts with one ring and gets more of them
+     * once its likes collide on a slot, as a LongAdder gets cells; a bucket counts over all the rings.
+     */
+    private static class FilmBuckets {
+
+        private volatile AtomicLongArray[] rings = {new AtomicLongArray(BUCKETS_COUNT)};
+
+        boolean add(long bucket) {
+            int slot = (int) (bucket % BUCKETS_COUNT);
+            AtomicLongArray[] currentRings = rings;
+            AtomicLongArray ring = currentRings[(int) Thread.currentThread().getId() & (currentRings.length - 1)];
+            while (true) {
+                long packed = ring.get(slot);
+                long slotBucket = packed >>> 32;
+                if (slotBucket > bucket) {
+                    // A thread which read the clock earlier came after the ring had moved on
+                    return false;
+                }
+                int likesCount = slotBucket == bucket ? (int) packed : 0;
+                if (ring.compareAndSet(slot, packed, bucket << 32 | likesCount + 1)) {
+                    return true;
+                }
+                currentRings = spread(currentRings);
+                ring = currentRings[ThreadLocalRandom.current().nextInt(currentRings.length)];
+            }
+        }
+
+        // Takes the like from the newest bucket of the window which has any
+        boolean remove(long bucket) {
+            AtomicLongArray[] currentRings = rings;
+            for (long likeBucket = bucket; likeBucket > bucket - BUCKETS_COUNT; likeBucket--) {
+                int slot = (int) (likeBucket % BUCKETS_COUNT);
+                for (AtomicLongArray ring : currentRings) {
+                    while (true) {
+                        long packed = ring.get(slot);
+                        if (packed >>> 32 != likeBucket || (int) packed == 0) {
+                            break;
+                        }
+                        if (ring.compareAndSet(slot, packed, packed - 1)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        int likesCount(long bucket) {
+            int likesCount = 0;
+            for (AtomicLongArray ring : rings) {
+                for (int i = 0; i < BUCKETS_COUNT; i++) {
+                    long packed = ring.get(i);
+                    long slotBucket = packed >>> 32;
+                    if (slotBucket <= bucket && slotBucket > bucket - BUCKETS_COUNT) {
+                        likesCount += (int) packed;
+                    }
+                }
+            }
+            return likesCount;
+        }
+
+        private AtomicLongArray[] spread(AtomicLongArray[] currentRings) {
+            if (currentRings.length < MAX_RINGS_COUNT) {
+                synchronized (this) {
+                    if (rings == currentRings) {
+                        AtomicLongArray[] newRings = Arrays.copyOf(currentRings, currentRings.length * 2);
+                        for (int i = currentRings.length; i < newRings.length; i++) {
+                            newRings[i] = new AtomicLongArray(BUCKETS_COUNT);
+                        }
+                        rings = newRings;
+                    }
+                }
+            }
+            return rings;
+        }
+    }
+
+    @Value
+    private static class Entry {
+        int filmId;
+        int likesCount;
+    }
+}
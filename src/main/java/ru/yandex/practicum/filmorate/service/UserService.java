@@ -3,13 +3,24 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.audit.AuditEventType;
+import ru.yandex.practicum.filmorate.audit.AuditLog;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.BatchItemStatus;
+import ru.yandex.practicum.filmorate.model.FriendshipMutation;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.AbstractRepository;
+import ru.yandex.practicum.filmorate.storage.FriendshipRepository;
+import ru.yandex.practicum.filmorate.storage.UserRepository;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
@@ -18,7 +29,11 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 @RequiredArgsConstructor
 public class UserService {
 
-    private final AbstractRepository<User> userRepository;
+    private final UserRepository userRepository;
+    private final FriendshipRepository friendshipRepository;
+    private final BatchExecutor batchExecutor;
+    private final AuditLog auditLog;
+    private final FriendRecommender friendRecommender;
 
     public User getUserById(Integer userId) {
         User user = userRepository.findById(userId);
@@ -28,70 +43,150 @@ public class UserService {
         return user;
     }
 
+    /**
+     * Existing users among the given ids, each of them looked up once.
+     */
+    public Map<Integer, User> getUsersByIds(Collection<Integer> userIds) {
+        return userIds
+                .stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .map(userRepository::findById)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
     public User createUser(User user) {
-        return isBlank(user.getName())
-                ? userRepository.save(user.withName(user.getLogin()))
-                : userRepository.save(user);
+        User createdUser = userRepository.save(withDefaultName(user));
+        auditLog.record(AuditEventType.USER_CREATED, createdUser.getId());
+        return createdUser;
     }
 
     public User updateUser(User user) {
         if (user.getId() == null) {
             throw new UserNotFoundException(user);
         }
-        return isBlank(user.getName())
-                ? userRepository.update(user.withName(user.getLogin()))
-                : userRepository.update(user);
+        User updatedUser = userRepository.update(withDefaultName(user));
+        auditLog.record(AuditEventType.USER_UPDATED, updatedUser.getId());
+        return updatedUser;
+    }
+
+    public List<BatchItemResult<User>> createUsers(List<User> users) {
+        return batchExecutor.execute(withDefaultNames(users), userRepository::saveAll,
+                BatchItemStatus.CREATED, UserNotFoundException::new);
+    }
+
+    public List<BatchItemResult<User>> updateUsers(List<User> users) {
+        return batchExecutor.execute(withDefaultNames(users), userRepository::updateAll,
+                BatchItemStatus.UPDATED, UserNotFoundException::new);
     }
 
     public Iterable<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    public Iterable<User> getUsersPage(Integer afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive.");
+        }
+        return userRepository.findAllAfter(afterId, limit);
+    }
+
     public User addFriend(Integer friendId, Integer userId) {
         if (friendId.equals(userId)) {
             throw new IllegalArgumentException("User must not be friend of himself.");
         }
         User user = getUserById(userId);
         User friend = getUserById(friendId);
-        boolean isAdded = user.getFriends().add(friendId);
+        boolean isAdded = friendshipRepository.addFriendship(user, friend);
         if (isAdded) {
-            log.info("Users with ids [{}, {}] are friends now.", userId, friendId);
-            friend.getFriends().add(userId);
+            friendRecommender.invalidate(user, friend);
+            auditLog.record(AuditEventType.FRIENDSHIP_ADDED, userId, friendId);
         } else {
-            log.info("Users with ids [{}, {}] are friends already.", userId, friendId);
+            auditLog.record(AuditEventType.FRIENDSHIP_ALREADY_ADDED, userId, friendId);
         }
-        return user;
+        // Read again, as a database repository leaves the user it was given as it is
+        return isAdded ? getUserById(userId) : user;
     }
 
     public User removeFriend(Integer friendId, Integer userId) {
         User user = getUserById(userId);
         User friend = getUserById(friendId);
-        boolean isRemoved = user.getFriends().remove(friendId);
+        boolean isRemoved = friendshipRepository.removeFriendship(user, friend);
         if (isRemoved) {
-            log.info("Users with ids [{}, {}] are not friends now.", userId, friendId);
-            friend.getFriends().remove(userId);
+            friendRecommender.invalidate(user, friend);
+            auditLog.record(AuditEventType.FRIENDSHIP_REMOVED, userId, friendId);
         } else {
-            log.info("Users with ids [{}, {}] have not been friends", userId, friendId);
+            auditLog.record(AuditEventType.FRIENDSHIP_NOT_FOUND, userId, friendId);
         }
-        return user;
+        // Read again, as a database repository leaves the user it was given as it is
+        return isRemoved ? getUserById(userId) : user;
     }
 
-    public Iterable<User> getMutualFriends(Integer id, Integer otherId) {
-        User user = getUserById(id);
-        User otherUser = getUserById(otherId);
-        Set<Integer> mutualFriendsSet = new HashSet<>(user.getFriends());
-        mutualFriendsSet.retainAll(otherUser.getFriends());
-        return mutualFriendsSet
+    public List<BatchItemResult<FriendshipMutation>> applyFriendships(List<FriendshipMutation> mutations) {
+        Map<Integer, User> users = getUsersByIds(mutations
                 .stream()
-                .map(userRepository::findById)
-                .collect(Collectors.toList());
+                .filter(Objects::nonNull)
+                .flatMap(mutation -> Stream.of(mutation.getUserId(), mutation.getFriendId()))
+                .collect(Collectors.toList()));
+        List<BatchItemResult<FriendshipMutation>> results = batchExecutor.executeMutations(mutations,
+                mutation -> findMissingUser(users, mutation.getUserId(), mutation.getFriendId()),
+                applicableMutations -> friendshipRepository.applyFriendships(applicableMutations, users));
+        for (BatchItemResult<FriendshipMutation> result : results) {
+            if (result.getStatus() == BatchItemStatus.APPLIED) {
+                FriendshipMutation mutation = result.getEntity();
+                friendRecommender.invalidate(users.get(mutation.getUserId()), users.get(mutation.getFriendId()));
+            }
+        }
+        log.info("{} of {} friendship mutations have been applied.",
+                results.stream().filter(result -> result.getStatus() == BatchItemStatus.APPLIED).count(),
+                mutations.size());
+        return results;
+    }
+
+    public Iterable<User> getMutualFriends(Integer id, Integer otherId) {
+        getUserById(id);
+        getUserById(otherId);
+        return userRepository.findMutualFriends(id, otherId);
     }
 
     public Iterable<User> getUserFriends(Integer userId) {
-        return getUserById(userId)
-                .getFriends()
+        getUserById(userId);
+        return userRepository.findFriends(userId);
+    }
+
+    /**
+     * Users who are friends of the user's friends but not of the user, most mutual friends first.
+     */
+    public List<User> getRecommendedFriends(Integer userId, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Recommendations count must be positive.");
+        }
+        User user = getUserById(userId);
+        return Arrays
+                .stream(friendRecommender.recommend(user, count))
+                .mapToObj(userRepository::findById)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private static String findMissingUser(Map<Integer, User> users, Integer... userIds) {
+        return Arrays
+                .stream(userIds)
+                .filter(userId -> !users.containsKey(userId))
+                .findFirst()
+                .map(userId -> new UserNotFoundException(userId).getMessage())
+                .orElse(null);
+    }
+
+    private static User withDefaultName(User user) {
+        return isBlank(user.getName()) ? user.withName(user.getLogin()) : user;
+    }
+
+    private static List<User> withDefaultNames(List<User> users) {
+        return users
                 .stream()
-                .map(userRepository::findById)
+                .map(user -> user == null ? null : withDefaultName(user))
                 .collect(Collectors.toList());
     }
 }
@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface AbstractRepository<T> {
 
@@ -8,9 +9,27 @@ public interface AbstractRepository<T> {
 
     T update(T t);
 
+    /**
+     * Saves all entities under one reserved range of ids, in the given order.
+     */
+    List<T> saveAll(List<T> entities);
+
+    /**
+     * Updates all entities, in the given order. An entity which does not exist is left out
+     * and its place in the result is taken by null.
+     */
+    List<T> updateAll(List<T> entities);
+
     T delete(T t);
 
     T findById(Integer id);
 
     Collection<T> findAll();
+
+    /**
+     * Page of entities in ascending id order that follow the given id (from the first one if it is null).
+     */
+    Collection<T> findAllAfter(Integer afterId, int limit);
+
+    long count();
 }
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.Duration;
+import java.util.List;
+
+public class CachingFilmRepository extends CachingRepository<Film> implements FilmRepository {
+
+    private final FilmRepository filmRepository;
+
+    public CachingFilmRepository(FilmRepository delegate, long maximumSize, Duration expireAfterWrite, Ticker ticker) {
+        super(delegate, Film::getId, "films", maximumSize, expireAfterWrite, ticker);
+        this.filmRepository = delegate;
+    }
+
+    @Override
+    public List<Film> findMostPopular(int count) {
+        return filmRepository.findMostPopular(count);
+    }
+
+    @Override
+    public List<Film> search(String query, int count) {
+        return filmRepository.search(query, count);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntitiesChanged(EntitiesChangedEvent event) {
+        invalidateAll(event.getFilmIds());
+    }
+}
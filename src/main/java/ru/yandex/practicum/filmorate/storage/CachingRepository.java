@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of entities by id in front of a repository. Caffeine evicts by W-TinyLFU once
+ * maximumSize is reached and drops entries expireAfterWrite after they were loaded. An entity is
+ * invalidated after the repository has updated or deleted it, so a concurrent load cannot put the
+ * old version back, and so are the entities other writes have changed, once their transaction has
+ * committed. Pages and full scans go to the repository, which keeps them out of the cache.
+ * Hits, misses and evictions are published as cache metrics under the name of the cache.
+ */
+public class CachingRepository<T> implements AbstractRepository<T>, MeterBinder {
+
+    private final AbstractRepository<T> delegate;
+
+    private final Function<T, Integer> idGetter;
+
+    private final String name;
+
+    private final Cache<Integer, T> cache;
+
+    public CachingRepository(AbstractRepository<T> delegate, Function<T, Integer> idGetter, String name,
+                             long maximumSize, Duration expireAfterWrite, Ticker ticker) {
+        this.delegate = delegate;
+        this.idGetter = idGetter;
+        this.name = name;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public T save(T t) {
+        T persistedEntity = delegate.save(t);
+        cache.put(idGetter.apply(persistedEntity), persistedEntity);
+        return persistedEntity;
+    }
+
+    @Override
+    public T update(T t) {
+        try {
+            return delegate.update(t);
+        } finally {
+            cache.invalidate(idGetter.apply(t));
+        }
+    }
+
+    @Override
+    public List<T> saveAll(List<T> entities) {
+        List<T> persistedEntities = delegate.saveAll(entities);
+        persistedEntities.forEach(entity -> cache.put(idGetter.apply(entity), entity));
+        return persistedEntities;
+    }
+
+    @Override
+    public List<T> updateAll(List<T> entities) {
+        try {
+            return delegate.updateAll(entities);
+        } finally {
+            cache.invalidateAll(entities
+                    .stream()
+                    .map(idGetter)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @Override
+    public T delete(T t) {
+        try {
+            return delegate.delete(t);
+        } finally {
+            cache.invalidate(idGetter.apply(t));
+        }
+    }
+
+    @Override
+    public T findById(Integer id) {
+        // A missing entity is not cached, it may be created under that id later
+        return id == null ? null : cache.get(id, delegate::findById);
+    }
+
+    @Override
+    public Collection<T> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Collection<T> findAllAfter(Integer afterId, int limit) {
+        return delegate.findAllAfter(afterId, limit);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    protected void invalidateAll(Collection<Integer> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    /**
+     * Hits, misses, loads and evictions since the cache was created.
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.util.List;
+
+public class CachingUserRepository extends CachingRepository<User> implements UserRepository {
+
+    private final UserRepository userRepository;
+
+    public CachingUserRepository(UserRepository delegate, long maximumSize, Duration expireAfterWrite, Ticker ticker) {
+        super(delegate, User::getId, "users", maximumSize, expireAfterWrite, ticker);
+        this.userRepository = delegate;
+    }
+
+    @Override
+    public List<User> findFriends(int userId) {
+        return userRepository.findFriends(userId);
+    }
+
+    @Override
+    public List<User> findMutualFriends(int userId, int otherUserId) {
+        return userRepository.findMutualFriends(userId, otherUserId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntitiesChanged(EntitiesChangedEvent event) {
+        invalidateAll(event.getUserIds());
+    }
+}
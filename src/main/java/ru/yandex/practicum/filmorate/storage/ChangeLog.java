@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.function.Supplier;
+
+/**
+ * Changes of the in-memory repositories, reported by them in the order they are applied to each entity.
+ */
+public interface ChangeLog {
+
+    ChangeLog NONE = new ChangeLog() {
+    };
+
+    /**
+     * Runs a change which is reported before readers can see it: a saved entity is logged before
+     * it is put, an update is logged inside the map's compute.
+     */
+    default <T> T track(Supplier<T> change) {
+        return change.get();
+    }
+
+    /**
+     * Returns once the changes reported by the calling thread have been persisted. Repositories call it
+     * after releasing their locks, so that the writers sharing one fsync do not hold each other up.
+     */
+    default void awaitPersisted() {
+    }
+
+    default void filmSaved(Film film) {
+    }
+
+    default void filmUpdated(Film film) {
+    }
+
+    default void filmDeleted(int filmId) {
+    }
+
+    default void userSaved(User user) {
+    }
+
+    default void userUpdated(User user) {
+    }
+
+    default void userDeleted(int userId) {
+    }
+
+    default void likeAdded(int userId, int filmId) {
+    }
+
+    default void likeRemoved(int userId, int filmId) {
+    }
+
+    default void friendshipAdded(int userId, int friendId) {
+    }
+
+    default void friendshipRemoved(int userId, int friendId) {
+    }
+}
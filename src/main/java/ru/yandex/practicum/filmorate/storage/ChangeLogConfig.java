@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Configuration
+@Profile("!jdbc")
+public class ChangeLogConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.wal.enabled", havingValue = "true")
+    public WriteAheadLog writeAheadLog(@Value("${filmorate.wal.path}") Path path,
+                                       @Value("${filmorate.wal.fsync-batch-size}") int fsyncBatchSize,
+                                       @Value("${filmorate.wal.fsync-interval-ms}") long fsyncIntervalMillis,
+                                       @Value("${filmorate.wal.await-fsync}") boolean awaitFsync)
+            throws IOException {
+        return new WriteAheadLog(path, fsyncBatchSize, fsyncIntervalMillis, awaitFsync);
+    }
+
+    // Loaded whenever the log is, since log segments covered by a snapshot are gone
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.wal.enabled", havingValue = "true")
+    public SnapshotStore snapshotStore(@Value("${filmorate.snapshot.path}") Path path) {
+        return new SnapshotStore(path);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.wal.enabled", havingValue = "false", matchIfMissing = true)
+    public ChangeLog noChangeLog() {
+        return ChangeLog.NONE;
+    }
+}
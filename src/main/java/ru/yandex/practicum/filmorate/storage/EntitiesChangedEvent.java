@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.Value;
+
+import java.util.Collection;
+
+/**
+ * Ids of the films and users whose rows a write of a JDBC repository has changed. Published inside
+ * the transaction of the write, so that the caches drop the entities once it has committed
+ * and keep them if it is rolled back.
+ */
+@Value
+public class EntitiesChangedEvent {
+    Collection<Integer> filmIds;
+    Collection<Integer> userIds;
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.RefreshCoalescer;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+/**
+ * Films ordered by (likesCount desc, id asc), maintained on every like change,
+ * so the top of the rating is read without sorting the whole catalog. Refreshes of one film
+ * are coalesced, so that a like of a premiere does not wait for the other ones to move it.
+ */
+@Component
+@Profile("!jdbc")
+public class FilmPopularityIndex {
+
+    private static final Comparator<Entry> RATING_ORDER = Comparator
+            .comparingInt(Entry::getLikesCount).reversed()
+            .thenComparingInt(Entry::getFilmId);
+
+    private final NavigableSet<Entry> rating = new ConcurrentSkipListSet<>(RATING_ORDER);
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    private final RefreshCoalescer refreshCoalescer = new RefreshCoalescer();
+
+    /**
+     * Likes count is read inside compute() after every request, so the film is moved to its latest
+     * count by the time the last refresh of it is over, though possibly by another thread.
+     */
+    public void refresh(Film film) {
+        refreshCoalescer.refresh(film.getId(), filmId -> move(film));
+    }
+
+    public void remove(Integer filmId) {
+        refreshCoalescer.remove(filmId);
+        entries.computeIfPresent(filmId, (id, entry) -> {
+            rating.remove(entry);
+            return null;
+        });
+    }
+
+    public List<Integer> getTopFilmIds(int count) {
+        return rating
+                .stream()
+                .limit(count)
+                .map(Entry::getFilmId)
+                .collect(Collectors.toList());
+    }
+
+    private void move(Film film) {
+        entries.compute(film.getId(), (filmId, oldEntry) -> {
+            int likesCount = film.getLikesCount().get();
+            if (oldEntry != null) {
+                if (oldEntry.getLikesCount() == likesCount) {
+                    return oldEntry;
+                }
+                rating.remove(oldEntry);
+            }
+            Entry entry = new Entry(filmId, likesCount);
+            rating.add(entry);
+            return entry;
+        });
+    }
+
+    @Value
+    private static class Entry {
+        int filmId;
+        int likesCount;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+
+public interface FilmRepository extends AbstractRepository<Film> {
+
+    /**
+     * Films ordered by likes count descending, then by id.
+     */
+    List<Film> findMostPopular(int count);
+
+    /**
+     * Films with all the words of the query in their name or description, the last word possibly unfinished,
+     * best matches first.
+     */
+    List<Film> search(String query, int count);
+}
@@ -0,0 +1,319 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inverted index over the names and descriptions of the films. Terms are kept in a sorted dictionary,
+ * so the last word of a query also matches the terms it is a prefix of, and every term keeps the ids
+ * of its films in a sorted array along with the term frequency and the film length. Films match when
+ * they have all the words of the query and are ranked by BM25 over both fields, a name word counting
+ * as NAME_WEIGHT description words. Maintained by the repository on every change of a film, which
+ * passes the film being replaced, so the index keeps nothing per film.
+ */
+@Component
+@Profile("!jdbc")
+public class FilmSearchIndex {
+
+    static final int NAME_WEIGHT = 3;
+
+    // Terms a prefix expands to, those of the most films, as a rare term a prefix matches is seldom the meant one
+    static final int MAX_PREFIX_TERMS = 64;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final int LENGTH_BITS = 20;
+    private static final int MAX_LENGTH = (1 << LENGTH_BITS) - 1;
+    private static final int MAX_FREQUENCY = (1 << (31 - LENGTH_BITS)) - 1;
+
+    private final NavigableMap<String, Postings> terms = new ConcurrentSkipListMap<>();
+
+    private final AtomicLong filmsCount = new AtomicLong();
+
+    private final AtomicLong totalLength = new AtomicLong();
+
+    public void add(Film film) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = count(film, frequencies);
+        int packedLength = Math.min(length, MAX_LENGTH);
+        frequencies.forEach((term, frequency) -> {
+            int value = Math.min(frequency, MAX_FREQUENCY) << LENGTH_BITS | packedLength;
+            while (true) {
+                Postings postings = terms.computeIfAbsent(term, t -> new Postings());
+                if (postings.put(film.getId(), value)) {
+                    break;
+                }
+                // Emptied by a removal which is dropping it, so it is dropped here as well and made anew
+                terms.remove(term, postings);
+            }
+        });
+        filmsCount.incrementAndGet();
+        totalLength.addAndGet(length);
+    }
+
+    public void update(Film oldFilm, Film newFilm) {
+        remove(oldFilm);
+        add(newFilm);
+    }
+
+    /**
+     * Drops the postings the film was the last one in. Emptied postings take no more films, so a film
+     * adding the term again at the same time puts it into new ones.
+     */
+    public void remove(Film film) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = count(film, frequencies);
+        for (String term : frequencies.keySet()) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(film.getId())) {
+                terms.remove(term, postings);
+            }
+        }
+        filmsCount.decrementAndGet();
+        totalLength.addAndGet(-length);
+    }
+
+    /**
+     * Ids of up to count films with all the words of the query, the last one possibly unfinished,
+     * by score descending and id ascending.
+     */
+    public List<Integer> search(String query, int count) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        List<Postings> exactPostings = new ArrayList<>();
+        for (String word : words.subList(0, words.size() - 1)) {
+            Postings postings = terms.get(word);
+            if (postings == null || postings.size() == 0) {
+                return List.of();
+            }
+            exactPostings.add(postings);
+        }
+        List<Postings> prefixPostings = expand(words.get(words.size() - 1));
+        if (prefixPostings.isEmpty()) {
+            return List.of();
+        }
+
+        long filmsCount = Math.max(this.filmsCount.get(), 1);
+        double averageLength = Math.max((double) totalLength.get() / filmsCount, 1);
+        double[] exactIdfs = new double[exactPostings.size()];
+        for (int i = 0; i < exactIdfs.length; i++) {
+            exactIdfs[i] = idf(exactPostings.get(i).size(), filmsCount);
+        }
+        double[] prefixIdfs = new double[prefixPostings.size()];
+        for (int i = 0; i < prefixIdfs.length; i++) {
+            prefixIdfs[i] = idf(prefixPostings.get(i).size(), filmsCount);
+        }
+
+        // The films of the shortest exact word are the candidates, or of every prefix term if there is none
+        List<int[]> candidates = new ArrayList<>();
+        if (exactPostings.isEmpty()) {
+            for (Postings postings : prefixPostings) {
+                candidates.add(postings.filmIds());
+            }
+        } else {
+            Postings shortest = exactPostings.get(0);
+            for (Postings postings : exactPostings) {
+                if (postings.size() < shortest.size()) {
+                    shortest = postings;
+                }
+            }
+            candidates.add(shortest.filmIds());
+        }
+
+        // Min-heap of (score, id) packed into longs, the worst of the kept films on top
+        PriorityQueue<Long> top = new PriorityQueue<>();
+        for (int c = 0; c < candidates.size(); c++) {
+            nextFilm:
+            for (int filmId : candidates.get(c)) {
+                for (int i = 0; i < c; i++) {
+                    // Already scored through an earlier prefix term
+                    if (prefixPostings.get(i).get(filmId) != 0) {
+                        continue nextFilm;
+                    }
+                }
+                double score = 0;
+                for (int i = 0; i < exactPostings.size(); i++) {
+                    int packed = exactPostings.get(i).get(filmId);
+                    if (packed == 0) {
+                        continue nextFilm;
+                    }
+                    score += bm25(packed, exactIdfs[i], averageLength);
+                }
+                double prefixScore = 0;
+                for (int i = 0; i < prefixPostings.size(); i++) {
+                    int packed = prefixPostings.get(i).get(filmId);
+                    if (packed != 0) {
+                        prefixScore = Math.max(prefixScore, bm25(packed, prefixIdfs[i], averageLength));
+                    }
+                }
+                if (prefixScore == 0) {
+                    continue;
+                }
+                long ranked = (long) Float.floatToIntBits((float) (score + prefixScore)) << 32
+                        | (Integer.MAX_VALUE - filmId);
+                if (top.size() < count) {
+                    top.add(ranked);
+                } else if (ranked > top.peek()) {
+                    top.poll();
+                    top.add(ranked);
+                }
+            }
+        }
+        long[] ranked = top.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(ranked);
+        List<Integer> filmIds = new ArrayList<>(ranked.length);
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            filmIds.add(Integer.MAX_VALUE - (int) ranked[i]);
+        }
+        return filmIds;
+    }
+
+    /**
+     * Lower-cased runs of letters and digits.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isWordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Weighted term frequencies of the film, returns its weighted length
+    private static int count(Film film, Map<String, Integer> frequencies) {
+        int length = 0;
+        for (String token : tokenize(film.getName())) {
+            frequencies.merge(token, NAME_WEIGHT, Integer::sum);
+            length += NAME_WEIGHT;
+        }
+        for (String token : tokenize(film.getDescription())) {
+            frequencies.merge(token, 1, Integer::sum);
+            length++;
+        }
+        return length;
+    }
+
+    int termsCount() {
+        return terms.size();
+    }
+
+    // Up to MAX_PREFIX_TERMS terms starting with the prefix which have the most films
+    private List<Postings> expand(String prefix) {
+        // Min-heap of the terms by their films count, read once, as postings change under the search
+        PriorityQueue<Map.Entry<Integer, Postings>> top = new PriorityQueue<>(Map.Entry.comparingByKey());
+        for (Postings postings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            int size = postings.size();
+            if (size == 0) {
+                continue;
+            }
+            if (top.size() < MAX_PREFIX_TERMS) {
+                top.add(Map.entry(size, postings));
+            } else if (size > top.peek().getKey()) {
+                top.poll();
+                top.add(Map.entry(size, postings));
+            }
+        }
+        List<Postings> expanded = new ArrayList<>(top.size());
+        for (Map.Entry<Integer, Postings> entry : top) {
+            expanded.add(entry.getValue());
+        }
+        return expanded;
+    }
+
+    private static double idf(int filmsWithTerm, long filmsCount) {
+        return Math.log(1 + (filmsCount - filmsWithTerm + 0.5) / (filmsWithTerm + 0.5));
+    }
+
+    private static double bm25(int packed, double idf, double averageLength) {
+        int frequency = packed >>> LENGTH_BITS;
+        int length = packed & MAX_LENGTH;
+        return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    /**
+     * Sorted film ids of a term in parallel with their packed frequencies and lengths, never 0 for a film
+     * which is there. Films mostly come with growing ids, which are appended. Once emptied, the postings
+     * are being dropped from the dictionary and refuse new films.
+     */
+    static class Postings {
+
+        private int[] filmIds = new int[2];
+        private int[] packed = new int[2];
+        private int size;
+        private boolean emptied;
+
+        // Returns false when the postings were emptied
+        synchronized boolean put(int filmId, int value) {
+            if (emptied) {
+                return false;
+            }
+            int index = Arrays.binarySearch(filmIds, 0, size, filmId);
+            if (index >= 0) {
+                packed[index] = value;
+                return true;
+            }
+            index = -index - 1;
+            if (size == filmIds.length) {
+                filmIds = Arrays.copyOf(filmIds, size * 2);
+                packed = Arrays.copyOf(packed, size * 2);
+            }
+            System.arraycopy(filmIds, index, filmIds, index + 1, size - index);
+            System.arraycopy(packed, index, packed, index + 1, size - index);
+            filmIds[index] = filmId;
+            packed[index] = value;
+            size++;
+            return true;
+        }
+
+        // Returns true when the film was the last one
+        synchronized boolean remove(int filmId) {
+            int index = Arrays.binarySearch(filmIds, 0, size, filmId);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(filmIds, index + 1, filmIds, index, size - index - 1);
+            System.arraycopy(packed, index + 1, packed, index, size - index - 1);
+            size--;
+            emptied = size == 0;
+            return emptied;
+        }
+
+        synchronized int get(int filmId) {
+            int index = Arrays.binarySearch(filmIds, 0, size, filmId);
+            return index < 0 ? 0 : packed[index];
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized int[] filmIds() {
+            return Arrays.copyOf(filmIds, size);
+        }
+    }
+}
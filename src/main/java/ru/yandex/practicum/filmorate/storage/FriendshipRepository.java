@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.FriendshipMutation;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The in-memory repository keeps friends in the users themselves, a database one leaves
+ * the given users as they are, so callers read them again to see a change.
+ */
+public interface FriendshipRepository {
+
+    boolean addFriendship(User user, User friend);
+
+    boolean removeFriendship(User user, User friend);
+
+    /**
+     * Applies friendship mutations in one pass; users referenced by them must be present in the map.
+     * Returns for every mutation whether it has changed anything.
+     */
+    boolean[] applyFriendships(List<FriendshipMutation> mutations, Map<Integer, User> users);
+
+    /**
+     * Number of friendships, each of them counted once.
+     */
+    long countFriendships();
+}
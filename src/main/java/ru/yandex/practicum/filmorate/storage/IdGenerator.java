@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IdGenerator {
+
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    public int nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    /**
+     * Reserves a range of consecutive ids with a single CAS and returns the first one.
+     */
+    public int reserve(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Ids count must be positive.");
+        }
+        return lastId.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Makes sure that the given id is never handed out again.
+     */
+    public void advanceTo(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+}
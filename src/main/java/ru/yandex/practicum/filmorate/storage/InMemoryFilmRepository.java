@@ -1,45 +1,119 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.StripedCounter;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
-public class InMemoryFilmRepository implements AbstractRepository<Film> {
+@Profile("!jdbc")
+@RequiredArgsConstructor
+public class InMemoryFilmRepository implements FilmRepository {
 
-    private final Map<Integer, Film> films = new HashMap<>();
+    private final Map<Integer, Film> films = new ConcurrentHashMap<>();
 
-    private Integer nextId = 1;
+    private final NavigableSet<Integer> ids = new ConcurrentSkipListSet<>();
+
+    private final FilmPopularityIndex popularityIndex;
+
+    private final FilmSearchIndex searchIndex;
+
+    private final ChangeLog changeLog;
+
+    private final IdGenerator idGenerator = new IdGenerator();
 
     @Override
     public Film save(Film film) {
-        Film persistedFilm = film.withId(getNextId());
-        log.info("{} created.", persistedFilm);
-        films.put(persistedFilm.getId(), persistedFilm);
+        Film persistedFilm = store(film, idGenerator.nextId());
+        changeLog.awaitPersisted();
         return persistedFilm;
     }
 
     @Override
     public Film update(Film film) {
-        Film oldFilm = films.get(film.getId());
-        if (oldFilm == null) {
+        Film persistedFilm = replace(film);
+        if (persistedFilm == null) {
             throw new FilmNotFoundException(film);
         }
-        log.info("Film with id={} has been updated.", film.getId());
-        film.getLikesCount().set(oldFilm.getLikesCount().get());
-        films.replace(film.getId(), oldFilm, film);
-        return film;
+        changeLog.awaitPersisted();
+        return persistedFilm;
+    }
+
+    @Override
+    public List<Film> saveAll(List<Film> filmBatch) {
+        List<Film> persistedFilms = new ArrayList<>(filmBatch.size());
+        if (filmBatch.isEmpty()) {
+            return persistedFilms;
+        }
+        int firstId = idGenerator.reserve(filmBatch.size());
+        for (Film film : filmBatch) {
+            persistedFilms.add(store(film, firstId + persistedFilms.size()));
+        }
+        changeLog.awaitPersisted();
+        log.info("{} films created with ids [{}, {}].", filmBatch.size(), firstId, firstId + filmBatch.size() - 1);
+        return persistedFilms;
+    }
+
+    @Override
+    public List<Film> updateAll(List<Film> filmBatch) {
+        List<Film> persistedFilms = new ArrayList<>(filmBatch.size());
+        for (Film film : filmBatch) {
+            persistedFilms.add(film.getId() == null ? null : replace(film));
+        }
+        changeLog.awaitPersisted();
+        log.info("{} of {} films have been updated.",
+                persistedFilms.stream().filter(Objects::nonNull).count(), filmBatch.size());
+        return persistedFilms;
     }
 
     @Override
     public Film delete(Film film) {
-        return films.remove(film.getId());
+        ids.remove(film.getId());
+        Film removedFilm = films.remove(film.getId());
+        popularityIndex.remove(film.getId());
+        if (removedFilm != null) {
+            searchIndex.remove(removedFilm);
+            changeLog.filmDeleted(removedFilm.getId());
+            changeLog.awaitPersisted();
+        }
+        return removedFilm;
+    }
+
+    /**
+     * Puts a film under the id it already has, keeping the likes and version of the stored one if there is one.
+     * Used to rebuild the repository, so the change is not reported to the change log.
+     */
+    public Film restore(Film film) {
+        idGenerator.advanceTo(film.getId());
+        Film persistedFilm = films.compute(film.getId(), (id, oldFilm) -> {
+            if (oldFilm == null) {
+                Film newFilm = film.withLikesCount(new StripedCounter()).withVersion(new LongAdder());
+                searchIndex.add(newFilm);
+                return newFilm;
+            }
+            Film newFilm = film.withLikesCount(oldFilm.getLikesCount()).withVersion(oldFilm.getVersion());
+            searchIndex.update(oldFilm, newFilm);
+            return newFilm;
+        });
+        persistedFilm.getVersion().increment();
+        ids.add(persistedFilm.getId());
+        popularityIndex.refresh(persistedFilm);
+        return persistedFilm;
     }
 
     @Override
@@ -52,7 +126,66 @@ public class InMemoryFilmRepository implements AbstractRepository<Film> {
         return films.values();
     }
 
-    private synchronized Integer getNextId() {
-        return nextId++;
+    @Override
+    public long count() {
+        return films.size();
+    }
+
+    @Override
+    public Collection<Film> findAllAfter(Integer afterId, int limit) {
+        NavigableSet<Integer> nextIds = afterId == null ? ids : ids.tailSet(afterId, false);
+        return nextIds
+                .stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> findMostPopular(int count) {
+        return popularityIndex
+                .getTopFilmIds(count)
+                .stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> search(String query, int count) {
+        return searchIndex
+                .search(query, count)
+                .stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private Film store(Film film, int id) {
+        Film persistedFilm = film.withId(id).withLikesCount(new StripedCounter()).withVersion(new LongAdder());
+        // Logged before the film becomes visible, so that its likes cannot precede it in the log
+        changeLog.track(() -> {
+            changeLog.filmSaved(persistedFilm);
+            searchIndex.add(persistedFilm);
+            return films.put(persistedFilm.getId(), persistedFilm);
+        });
+        ids.add(persistedFilm.getId());
+        popularityIndex.refresh(persistedFilm);
+        return persistedFilm;
+    }
+
+    // Carries the likes and version of the stored film over, returns null if there is none
+    private Film replace(Film film) {
+        Film persistedFilm = changeLog.track(() -> films.computeIfPresent(film.getId(), (id, oldFilm) -> {
+            Film newFilm = film.withLikesCount(oldFilm.getLikesCount()).withVersion(oldFilm.getVersion());
+            changeLog.filmUpdated(newFilm);
+            searchIndex.update(oldFilm, newFilm);
+            return newFilm;
+        }));
+        if (persistedFilm != null) {
+            persistedFilm.getVersion().increment();
+        }
+        return persistedFilm;
     }
 }
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.FriendshipMutation;
+import ru.yandex.practicum.filmorate.model.MutationAction;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Undirected friendship graph over the users' adjacency sets. Both directions of an edge change
+ * under the monitors of both sets, taken in ascending user id order to rule out deadlocks.
+ */
+@Repository
+@Profile("!jdbc")
+@RequiredArgsConstructor
+public class InMemoryFriendshipRepository implements FriendshipRepository {
+
+    private final ChangeLog changeLog;
+
+    private final LongAdder friendshipsCount = new LongAdder();
+
+    @Override
+    public boolean addFriendship(User user, User friend) {
+        boolean isAdded;
+        synchronized (firstLock(user, friend)) {
+            synchronized (secondLock(user, friend)) {
+                isAdded = link(user, friend);
+            }
+        }
+        changeLog.awaitPersisted();
+        return isAdded;
+    }
+
+    @Override
+    public boolean removeFriendship(User user, User friend) {
+        boolean isRemoved;
+        synchronized (firstLock(user, friend)) {
+            synchronized (secondLock(user, friend)) {
+                isRemoved = unlink(user, friend);
+            }
+        }
+        changeLog.awaitPersisted();
+        return isRemoved;
+    }
+
+    @Override
+    public boolean[] applyFriendships(List<FriendshipMutation> mutations, Map<Integer, User> users) {
+        // Edges grouped by their lower user id, whose monitor is then taken once for the whole group
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < mutations.size(); i++) {
+            FriendshipMutation mutation = mutations.get(i);
+            groups.computeIfAbsent(Math.min(mutation.getUserId(), mutation.getFriendId()), id -> new ArrayList<>())
+                    .add(i);
+        }
+        boolean[] changed = new boolean[mutations.size()];
+        for (Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+            synchronized (users.get(group.getKey()).getFriends()) {
+                for (int i : group.getValue()) {
+                    FriendshipMutation mutation = mutations.get(i);
+                    User user = users.get(mutation.getUserId());
+                    User friend = users.get(mutation.getFriendId());
+                    synchronized (secondLock(user, friend)) {
+                        changed[i] = mutation.getAction() == MutationAction.ADD
+                                ? link(user, friend)
+                                : unlink(user, friend);
+                    }
+                }
+            }
+        }
+        changeLog.awaitPersisted();
+        return changed;
+    }
+
+    @Override
+    public long countFriendships() {
+        return friendshipsCount.sum();
+    }
+
+    // Caller holds both monitors
+    private boolean link(User user, User friend) {
+        if (!user.getFriends().add(friend.getId())) {
+            return false;
+        }
+        friend.getFriends().add(user.getId());
+        friendshipsCount.increment();
+        user.getVersion().incrementAndGet();
+        friend.getVersion().incrementAndGet();
+        changeLog.friendshipAdded(user.getId(), friend.getId());
+        return true;
+    }
+
+    // Caller holds both monitors
+    private boolean unlink(User user, User friend) {
+        if (!user.getFriends().remove(friend.getId())) {
+            return false;
+        }
+        friend.getFriends().remove(user.getId());
+        friendshipsCount.decrement();
+        user.getVersion().incrementAndGet();
+        friend.getVersion().incrementAndGet();
+        changeLog.friendshipRemoved(user.getId(), friend.getId());
+        return true;
+    }
+
+    private static IntSet firstLock(User user, User friend) {
+        return user.getId() < friend.getId() ? user.getFriends() : friend.getFriends();
+    }
+
+    private static IntSet secondLock(User user, User friend) {
+        return user.getId() < friend.getId() ? friend.getFriends() : user.getFriends();
+    }
+}
@@ -0,0 +1,173 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.MutationAction;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Like table with the set of likers per film. A like is guarded by a lock striped by (user, film),
+ * so the likers set, the user's liked films and the film's likes count change together, while
+ * different users liking the same film rarely meet on one lock. The like listener is told under
+ * the monitor of the user's liked films, so likes of one user are paired in the order they are made.
+ * Changed films are moved in the popularity index once the like is done.
+ */
+@Repository
+@Profile("!jdbc")
+@RequiredArgsConstructor
+public class InMemoryLikeRepository implements LikeRepository {
+
+    private static final int STRIPES_COUNT = 256;
+
+    private final Map<Integer, Set<Integer>> filmLikers = new ConcurrentHashMap<>();
+
+    private final Object[] locks = createLocks();
+
+    private final LongAdder likesCount = new LongAdder();
+
+    private final FilmPopularityIndex popularityIndex;
+
+    private final ChangeLog changeLog;
+
+    private final LikeListener likeListener;
+
+    @Override
+    public boolean addLike(User user, Film film) {
+        boolean isAdded;
+        synchronized (locks[getStripe(user.getId(), film.getId())]) {
+            isAdded = like(user, film);
+        }
+        if (isAdded) {
+            popularityIndex.refresh(film);
+            changeLog.awaitPersisted();
+        }
+        return isAdded;
+    }
+
+    @Override
+    public boolean removeLike(User user, Film film) {
+        boolean isRemoved;
+        synchronized (locks[getStripe(user.getId(), film.getId())]) {
+            isRemoved = unlike(user, film);
+        }
+        if (isRemoved) {
+            popularityIndex.refresh(film);
+            changeLog.awaitPersisted();
+        }
+        return isRemoved;
+    }
+
+    @Override
+    public boolean[] applyLikes(List<LikeMutation> mutations, Map<Integer, User> users, Map<Integer, Film> films) {
+        int size = mutations.size();
+        // Stable counting sort by stripe: each stripe is taken once and mutations of one pair keep their order
+        int[] stripes = new int[size];
+        int[] stripeStarts = new int[STRIPES_COUNT + 1];
+        for (int i = 0; i < size; i++) {
+            LikeMutation mutation = mutations.get(i);
+            stripes[i] = getStripe(mutation.getUserId(), mutation.getFilmId());
+            stripeStarts[stripes[i] + 1]++;
+        }
+        for (int stripe = 0; stripe < STRIPES_COUNT; stripe++) {
+            stripeStarts[stripe + 1] += stripeStarts[stripe];
+        }
+        int[] order = new int[size];
+        int[] positions = Arrays.copyOf(stripeStarts, STRIPES_COUNT);
+        for (int i = 0; i < size; i++) {
+            order[positions[stripes[i]]++] = i;
+        }
+        boolean[] changed = new boolean[size];
+        for (int stripe = 0; stripe < STRIPES_COUNT; stripe++) {
+            if (stripeStarts[stripe] == stripeStarts[stripe + 1]) {
+                continue;
+            }
+            synchronized (locks[stripe]) {
+                for (int j = stripeStarts[stripe]; j < stripeStarts[stripe + 1]; j++) {
+                    LikeMutation mutation = mutations.get(order[j]);
+                    User user = users.get(mutation.getUserId());
+                    Film film = films.get(mutation.getFilmId());
+                    changed[order[j]] = mutation.getAction() == MutationAction.ADD
+                            ? like(user, film)
+                            : unlike(user, film);
+                }
+            }
+        }
+        // Every changed film is moved in the popularity index once, however many likes it got
+        Set<Integer> changedFilmIds = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            if (changed[i] && changedFilmIds.add(mutations.get(i).getFilmId())) {
+                popularityIndex.refresh(films.get(mutations.get(i).getFilmId()));
+            }
+        }
+        changeLog.awaitPersisted();
+        return changed;
+    }
+
+    @Override
+    public long countLikes() {
+        return likesCount.sum();
+    }
+
+    // Caller holds the stripe of the pair
+    private boolean like(User user, Film film) {
+        Set<Integer> likers = filmLikers.computeIfAbsent(film.getId(), id -> ConcurrentHashMap.newKeySet());
+        if (!likers.add(user.getId())) {
+            return false;
+        }
+        IntSet likedFilms = user.getLikedFilms();
+        synchronized (likedFilms) {
+            likeListener.likeAdded(user.getId(), film.getId(), likedFilms.toArray());
+            likedFilms.add(film.getId());
+        }
+        film.getLikesCount().increment();
+        likesCount.increment();
+        user.getVersion().incrementAndGet();
+        film.getVersion().increment();
+        changeLog.likeAdded(user.getId(), film.getId());
+        return true;
+    }
+
+    // Caller holds the stripe of the pair
+    private boolean unlike(User user, Film film) {
+        Set<Integer> likers = filmLikers.get(film.getId());
+        if (likers == null || !likers.remove(user.getId())) {
+            return false;
+        }
+        IntSet likedFilms = user.getLikedFilms();
+        synchronized (likedFilms) {
+            likedFilms.remove(film.getId());
+            likeListener.likeRemoved(user.getId(), film.getId(), likedFilms.toArray());
+        }
+        film.getLikesCount().decrement();
+        likesCount.decrement();
+        user.getVersion().incrementAndGet();
+        film.getVersion().increment();
+        changeLog.likeRemoved(user.getId(), film.getId());
+        return true;
+    }
+
+    private static Object[] createLocks() {
+        Object[] locks = new Object[STRIPES_COUNT];
+        for (int i = 0; i < STRIPES_COUNT; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    private static int getStripe(int userId, int filmId) {
+        int hash = 31 * userId + filmId;
+        return (hash ^ (hash >>> 16)) & (STRIPES_COUNT - 1);
+    }
+}
@@ -1,46 +1,108 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntSet;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
-public class InMemoryUserRepository implements AbstractRepository<User> {
+@Profile("!jdbc")
+@RequiredArgsConstructor
+public class InMemoryUserRepository implements UserRepository {
 
     private final Map<Integer, User> users = new ConcurrentHashMap<>();
 
-    private Integer nextId = 1;
+    private final NavigableSet<Integer> ids = new ConcurrentSkipListSet<>();
+
+    private final IdGenerator idGenerator = new IdGenerator();
+
+    private final ChangeLog changeLog;
 
     @Override
     public User save(User user) {
-        User persistedUser = user.withId(getNextId());
-        users.put(persistedUser.getId(), persistedUser);
-        log.info("{} created.", persistedUser);
+        User persistedUser = store(user, idGenerator.nextId());
+        changeLog.awaitPersisted();
         return persistedUser;
     }
 
     @Override
     public User update(User user) {
-        User oldUser = users.get(user.getId());
-        if (oldUser == null) {
+        User persistedUser = replace(user);
+        if (persistedUser == null) {
             throw new UserNotFoundException(user);
         }
-        user.getLikedFilms().addAll(oldUser.getLikedFilms());
-        user.getFriends().addAll(oldUser.getFriends());
-        log.info("User with id={} has been updated.", user.getId());
-        users.replace(user.getId(), oldUser, user);
-        return user;
+        changeLog.awaitPersisted();
+        return persistedUser;
+    }
+
+    @Override
+    public List<User> saveAll(List<User> userBatch) {
+        List<User> persistedUsers = new ArrayList<>(userBatch.size());
+        if (userBatch.isEmpty()) {
+            return persistedUsers;
+        }
+        int firstId = idGenerator.reserve(userBatch.size());
+        for (User user : userBatch) {
+            persistedUsers.add(store(user, firstId + persistedUsers.size()));
+        }
+        changeLog.awaitPersisted();
+        log.info("{} users created with ids [{}, {}].", userBatch.size(), firstId, firstId + userBatch.size() - 1);
+        return persistedUsers;
+    }
+
+    @Override
+    public List<User> updateAll(List<User> userBatch) {
+        List<User> persistedUsers = new ArrayList<>(userBatch.size());
+        for (User user : userBatch) {
+            persistedUsers.add(user.getId() == null ? null : replace(user));
+        }
+        changeLog.awaitPersisted();
+        log.info("{} of {} users have been updated.",
+                persistedUsers.stream().filter(Objects::nonNull).count(), userBatch.size());
+        return persistedUsers;
     }
 
     @Override
     public User delete(User user) {
-        return users.remove(user.getId());
+        ids.remove(user.getId());
+        User removedUser = users.remove(user.getId());
+        if (removedUser != null) {
+            changeLog.userDeleted(removedUser.getId());
+            changeLog.awaitPersisted();
+        }
+        return removedUser;
+    }
+
+    /**
+     * Puts a user under the id it already has, keeping the friends, likes and version of the stored one
+     * if there is one. Used to rebuild the repository, so the change is not reported to the change log.
+     */
+    public User restore(User user) {
+        idGenerator.advanceTo(user.getId());
+        User persistedUser = users.compute(user.getId(), (id, oldUser) -> oldUser == null
+                ? user.withFriends(new IntSet()).withLikedFilms(new IntSet()).withVersion(new AtomicLong())
+                : user.withFriends(oldUser.getFriends())
+                        .withLikedFilms(oldUser.getLikedFilms())
+                        .withVersion(oldUser.getVersion()));
+        persistedUser.getVersion().incrementAndGet();
+        ids.add(persistedUser.getId());
+        return persistedUser;
     }
 
     @Override
@@ -53,7 +115,68 @@ public class InMemoryUserRepository implements AbstractRepository<User> {
         return users.values();
     }
 
-    private synchronized Integer getNextId() {
-        return nextId++;
+    @Override
+    public long count() {
+        return users.size();
+    }
+
+    @Override
+    public Collection<User> findAllAfter(Integer afterId, int limit) {
+        NavigableSet<Integer> nextIds = afterId == null ? ids : ids.tailSet(afterId, false);
+        return nextIds
+                .stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<User> findFriends(int userId) {
+        return findAllByIds(users.get(userId).getFriends().toArray());
+    }
+
+    @Override
+    public List<User> findMutualFriends(int userId, int otherUserId) {
+        return findAllByIds(users.get(userId).getFriends().intersect(users.get(otherUserId).getFriends()));
+    }
+
+    private List<User> findAllByIds(int[] userIds) {
+        return Arrays
+                .stream(userIds)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private User store(User user, int id) {
+        User persistedUser = user
+                .withId(id)
+                .withFriends(new IntSet())
+                .withLikedFilms(new IntSet())
+                .withVersion(new AtomicLong());
+        // Logged before the user becomes visible, so that friendships and likes cannot precede it in the log
+        changeLog.track(() -> {
+            changeLog.userSaved(persistedUser);
+            return users.put(persistedUser.getId(), persistedUser);
+        });
+        ids.add(persistedUser.getId());
+        return persistedUser;
+    }
+
+    // Carries the friends, likes and version of the stored user over, returns null if there is none
+    private User replace(User user) {
+        User persistedUser = changeLog.track(() -> users.computeIfPresent(user.getId(), (id, oldUser) -> {
+            User newUser = user
+                    .withFriends(oldUser.getFriends())
+                    .withLikedFilms(oldUser.getLikedFilms())
+                    .withVersion(oldUser.getVersion());
+            changeLog.userUpdated(newUser);
+            return newUser;
+        }));
+        if (persistedUser != null) {
+            persistedUser.getVersion().incrementAndGet();
+        }
+        return persistedUser;
     }
 }
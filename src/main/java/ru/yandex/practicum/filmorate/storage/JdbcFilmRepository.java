@@ -0,0 +1,242 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.StripedCounter;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Repository
+@Profile("jdbc")
+@RequiredArgsConstructor
+public class JdbcFilmRepository implements FilmRepository {
+
+    private static final String INSERT_FILM =
+            "INSERT INTO films (name, description, release_date, duration) VALUES (?, ?, ?, ?)";
+
+    private static final String UPDATE_FILM =
+            "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, version = version + 1 "
+                    + "WHERE id = ?";
+
+    private static final String SELECT_FILMS =
+            "SELECT id, name, description, release_date, duration, likes_count, version FROM films";
+
+    private static final RowMapper<Film> FILM_MAPPER = JdbcFilmRepository::mapFilm;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${filmorate.jdbc.batch-size}")
+    private int batchSize;
+
+    @Override
+    public Film save(Film film) {
+        return insert(List.of(film)).get(0);
+    }
+
+    @Override
+    @Transactional
+    public Film update(Film film) {
+        Film persistedFilm = replace(List.of(film)).get(0);
+        if (persistedFilm == null) {
+            throw new FilmNotFoundException(film);
+        }
+        return persistedFilm;
+    }
+
+    @Override
+    @Transactional
+    public List<Film> saveAll(List<Film> filmBatch) {
+        List<Film> persistedFilms = insert(filmBatch);
+        log.info("{} films created.", persistedFilms.size());
+        return persistedFilms;
+    }
+
+    @Override
+    @Transactional
+    public List<Film> updateAll(List<Film> filmBatch) {
+        List<Film> persistedFilms = replace(filmBatch);
+        log.info("{} of {} films have been updated.",
+                persistedFilms.stream().filter(Objects::nonNull).count(), filmBatch.size());
+        return persistedFilms;
+    }
+
+    @Override
+    @Transactional
+    public Film delete(Film film) {
+        Film removedFilm = findById(film.getId());
+        if (removedFilm != null) {
+            // Likes go away with the film, so the users who liked it lose it
+            List<Integer> likerIds = jdbcTemplate.queryForList("SELECT user_id FROM likes WHERE film_id = ?",
+                    Integer.class, film.getId());
+            jdbcTemplate.update("DELETE FROM films WHERE id = ?", film.getId());
+            eventPublisher.publishEvent(new EntitiesChangedEvent(List.of(), likerIds));
+        }
+        return removedFilm;
+    }
+
+    @Override
+    public Film findById(Integer id) {
+        return jdbcTemplate.query(SELECT_FILMS + " WHERE id = ?", FILM_MAPPER, id)
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return jdbcTemplate.query(SELECT_FILMS + " ORDER BY id", FILM_MAPPER);
+    }
+
+    @Override
+    public long count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Long.class);
+    }
+
+    @Override
+    public Collection<Film> findAllAfter(Integer afterId, int limit) {
+        return jdbcTemplate.query(SELECT_FILMS + " WHERE id > ? ORDER BY id LIMIT ?", FILM_MAPPER,
+                afterId == null ? 0 : afterId, limit);
+    }
+
+    /**
+     * Reads the top of films_rating_idx, the films are not sorted by the application.
+     */
+    @Override
+    public List<Film> findMostPopular(int count) {
+        return jdbcTemplate.query(SELECT_FILMS + " ORDER BY likes_count DESC, id LIMIT ?", FILM_MAPPER, count);
+    }
+
+    /**
+     * Matches every word of the query anywhere in the name or description, ranked by likes rather than relevance,
+     * as H2 has no text index here.
+     */
+    @Override
+    public List<Film> search(String query, int count) {
+        List<String> words = FilmSearchIndex.tokenize(query);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        List<Object> args = new ArrayList<>();
+        String condition = words
+                .stream()
+                .map(word -> {
+                    args.add("%" + word + "%");
+                    args.add("%" + word + "%");
+                    return "(LOWER(name) LIKE ? OR LOWER(description) LIKE ?)";
+                })
+                .collect(Collectors.joining(" AND "));
+        args.add(count);
+        return jdbcTemplate.query(SELECT_FILMS + " WHERE " + condition + " ORDER BY likes_count DESC, id LIMIT ?",
+                FILM_MAPPER, args.toArray());
+    }
+
+    // Inserts the films in batches of batchSize rows and reads the generated ids back in the same order
+    private List<Film> insert(List<Film> filmBatch) {
+        List<Film> persistedFilms = new ArrayList<>(filmBatch.size());
+        if (filmBatch.isEmpty()) {
+            return persistedFilms;
+        }
+        return jdbcTemplate.execute((ConnectionCallback<List<Film>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_FILM, new String[]{"id"})) {
+                for (int from = 0; from < filmBatch.size(); from += batchSize) {
+                    List<Film> chunk = filmBatch.subList(from, Math.min(from + batchSize, filmBatch.size()));
+                    for (Film film : chunk) {
+                        statement.setString(1, film.getName());
+                        statement.setString(2, film.getDescription());
+                        statement.setDate(3, Date.valueOf(film.getReleaseDate()));
+                        statement.setInt(4, film.getDuration());
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (Film film : chunk) {
+                            if (!keys.next()) {
+                                throw new SQLException("Id of an inserted film has not been returned.");
+                            }
+                            persistedFilms.add(film.withId(keys.getInt(1)).withLikesCount(new StripedCounter()));
+                        }
+                    }
+                }
+            }
+            return persistedFilms;
+        });
+    }
+
+    // Updates the films with one batch and reads them back, null in place of a film which does not exist
+    private List<Film> replace(List<Film> filmBatch) {
+        List<Film> existingFilms = filmBatch
+                .stream()
+                .filter(film -> film.getId() != null)
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(UPDATE_FILM, existingFilms, batchSize, (statement, film) -> {
+            statement.setString(1, film.getName());
+            statement.setString(2, film.getDescription());
+            statement.setDate(3, Date.valueOf(film.getReleaseDate()));
+            statement.setInt(4, film.getDuration());
+            statement.setInt(5, film.getId());
+        });
+        Map<Integer, Film> persistedFilms = findAllByIds(existingFilms
+                .stream()
+                .map(Film::getId)
+                .collect(Collectors.toList()));
+        return filmBatch
+                .stream()
+                .map(film -> film.getId() == null ? null : persistedFilms.get(film.getId()))
+                .collect(Collectors.toList());
+    }
+
+    private Map<Integer, Film> findAllByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return namedJdbcTemplate.query(SELECT_FILMS + " WHERE id IN (:ids)", new MapSqlParameterSource("ids", ids),
+                        FILM_MAPPER)
+                .stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+    }
+
+    private static Film mapFilm(ResultSet resultSet, int rowNum) throws SQLException {
+        return new Film(
+                resultSet.getInt("id"),
+                resultSet.getString("name"),
+                resultSet.getString("description"),
+                resultSet.getDate("release_date").toLocalDate(),
+                resultSet.getInt("duration"),
+                new StripedCounter(resultSet.getInt("likes_count")),
+                toVersion(resultSet.getLong("version")));
+    }
+
+    private static LongAdder toVersion(long value) {
+        LongAdder version = new LongAdder();
+        version.add(value);
+        return version;
+    }
+}
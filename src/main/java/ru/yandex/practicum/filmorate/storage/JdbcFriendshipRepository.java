@@ -0,0 +1,180 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import ru.yandex.practicum.filmorate.model.FriendshipMutation;
+import ru.yandex.practicum.filmorate.model.MutationAction;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Undirected friendship graph stored as both directions of every edge, which are written together.
+ * The given users may be shared through a cache and are left as they are: the changed ones are
+ * published for invalidation.
+ */
+@Repository
+@Profile("jdbc")
+@RequiredArgsConstructor
+public class JdbcFriendshipRepository implements FriendshipRepository {
+
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO friendships (user_id, friend_id) SELECT ?, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)";
+
+    private static final String DELETE_FRIENDSHIP = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
+
+    private static final String UPDATE_USER_VERSION = "UPDATE users SET version = version + 1 WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${filmorate.jdbc.batch-size}")
+    private int batchSize;
+
+    /**
+     * The lower id goes first in both directions, so two users adding each other at once meet on the same row.
+     */
+    @Override
+    @Transactional
+    public boolean addFriendship(User user, User friend) {
+        int lowerId = Math.min(user.getId(), friend.getId());
+        int higherId = Math.max(user.getId(), friend.getId());
+        try {
+            if (insert(lowerId, higherId) == 0) {
+                return false;
+            }
+            insert(higherId, lowerId);
+        } catch (DuplicateKeyException e) {
+            // A concurrent transaction has inserted the friendship between the check and the insert
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return false;
+        }
+        moveVersions(user, friend);
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeFriendship(User user, User friend) {
+        if (jdbcTemplate.update(DELETE_FRIENDSHIP, user.getId(), friend.getId()) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(DELETE_FRIENDSHIP, friend.getId(), user.getId());
+        moveVersions(user, friend);
+        return true;
+    }
+
+    /**
+     * Plays the mutations over the friendships the users already have and writes only the net result
+     * with one batch of inserts and one of deletes.
+     */
+    @Override
+    @Transactional
+    public boolean[] applyFriendships(List<FriendshipMutation> mutations, Map<Integer, User> users) {
+        Set<Long> initialEdges = findEdges(users.keySet());
+        Set<Long> edges = new HashSet<>(initialEdges);
+        Set<Long> touchedEdges = new LinkedHashSet<>();
+        boolean[] changed = new boolean[mutations.size()];
+        for (int i = 0; i < mutations.size(); i++) {
+            FriendshipMutation mutation = mutations.get(i);
+            long edge = toEdge(mutation.getUserId(), mutation.getFriendId());
+            changed[i] = mutation.getAction() == MutationAction.ADD ? edges.add(edge) : edges.remove(edge);
+            touchedEdges.add(edge);
+        }
+        List<int[]> addedRows = new ArrayList<>();
+        List<int[]> removedRows = new ArrayList<>();
+        for (long edge : touchedEdges) {
+            boolean isLinked = edges.contains(edge);
+            if (isLinked != initialEdges.contains(edge)) {
+                int userId = (int) (edge >>> 32);
+                int friendId = (int) edge;
+                List<int[]> rows = isLinked ? addedRows : removedRows;
+                rows.add(new int[]{userId, friendId});
+                rows.add(new int[]{friendId, userId});
+            }
+        }
+        Set<Integer> changedUserIds = new LinkedHashSet<>();
+        int[][] insertCounts = jdbcTemplate.batchUpdate(INSERT_FRIENDSHIP, addedRows, batchSize, (statement, row) -> {
+            statement.setInt(1, row[0]);
+            statement.setInt(2, row[1]);
+            statement.setInt(3, row[0]);
+            statement.setInt(4, row[1]);
+        });
+        applyCounts(addedRows, insertCounts, changedUserIds);
+        int[][] deleteCounts = jdbcTemplate.batchUpdate(DELETE_FRIENDSHIP, removedRows, batchSize, (statement, row) -> {
+            statement.setInt(1, row[0]);
+            statement.setInt(2, row[1]);
+        });
+        applyCounts(removedRows, deleteCounts, changedUserIds);
+        List<Object[]> userVersionUpdates = new ArrayList<>();
+        for (int userId : changedUserIds) {
+            userVersionUpdates.add(new Object[]{userId});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_USER_VERSION, userVersionUpdates);
+        eventPublisher.publishEvent(new EntitiesChangedEvent(List.of(), changedUserIds));
+        return changed;
+    }
+
+    @Override
+    public long countFriendships() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendships", Long.class) / 2;
+    }
+
+    private void moveVersions(User user, User friend) {
+        jdbcTemplate.update(UPDATE_USER_VERSION, user.getId());
+        jdbcTemplate.update(UPDATE_USER_VERSION, friend.getId());
+        eventPublisher.publishEvent(new EntitiesChangedEvent(List.of(), List.of(user.getId(), friend.getId())));
+    }
+
+    // Counts only the rows which have actually changed, in case a concurrent transaction got there first
+    private static void applyCounts(List<int[]> rows, int[][] counts, Set<Integer> changedUserIds) {
+        int i = 0;
+        for (int[] batchCounts : counts) {
+            for (int count : batchCounts) {
+                int[] row = rows.get(i++);
+                if (count != 0) {
+                    changedUserIds.add(row[0]);
+                }
+            }
+        }
+    }
+
+    private int insert(int userId, int friendId) {
+        return jdbcTemplate.update(INSERT_FRIENDSHIP, userId, friendId, userId, friendId);
+    }
+
+    // Edges between the given users, each of them once
+    private Set<Long> findEdges(Set<Integer> userIds) {
+        Set<Long> edges = new HashSet<>();
+        if (userIds.isEmpty()) {
+            return edges;
+        }
+        namedJdbcTemplate.query("SELECT user_id, friend_id FROM friendships "
+                        + "WHERE user_id IN (:ids) AND friend_id IN (:ids) AND user_id < friend_id",
+                new MapSqlParameterSource("ids", userIds),
+                (RowCallbackHandler) resultSet -> edges.add(toEdge(resultSet.getInt(1), resultSet.getInt(2))));
+        return edges;
+    }
+
+    private static long toEdge(int userId, int friendId) {
+        return (long) Math.min(userId, friendId) << 32 | Math.max(userId, friendId);
+    }
+}
@@ -0,0 +1,220 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.MutationAction;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Like table with the likes count of every film kept in step in the same transaction,
+ * so that the rating is served by the films_rating_idx index. The given users and films may be
+ * shared through a cache and are left as they are: the changed ones are published for invalidation.
+ * Rows of the users are locked before their likes are read, so that the like listener, told once
+ * the transaction has committed, gets the liked films of a user in the order the likes were made.
+ */
+@Repository
+@Profile("jdbc")
+@RequiredArgsConstructor
+public class JdbcLikeRepository implements LikeRepository {
+
+    private static final String INSERT_LIKE = "INSERT INTO likes (user_id, film_id) SELECT ?, ? "
+            + "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE user_id = ? AND film_id = ?)";
+
+    private static final String DELETE_LIKE = "DELETE FROM likes WHERE user_id = ? AND film_id = ?";
+
+    private static final String UPDATE_LIKES_COUNT =
+            "UPDATE films SET likes_count = likes_count + ?, version = version + 1 WHERE id = ?";
+
+    private static final String UPDATE_USER_VERSION = "UPDATE users SET version = version + 1 WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final LikeListener likeListener;
+
+    @Value("${filmorate.jdbc.batch-size}")
+    private int batchSize;
+
+    @Override
+    @Transactional
+    public boolean addLike(User user, Film film) {
+        IntSet likedFilms = findLikedFilms(Set.of(user.getId())).getOrDefault(user.getId(), new IntSet());
+        if (jdbcTemplate.update(INSERT_LIKE, user.getId(), film.getId(), user.getId(), film.getId()) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(UPDATE_LIKES_COUNT, 1, film.getId());
+        jdbcTemplate.update(UPDATE_USER_VERSION, user.getId());
+        eventPublisher.publishEvent(new EntitiesChangedEvent(List.of(film.getId()), List.of(user.getId())));
+        int[] otherFilmIds = likedFilms.toArray();
+        afterCommit(List.of(() -> likeListener.likeAdded(user.getId(), film.getId(), otherFilmIds)));
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeLike(User user, Film film) {
+        IntSet likedFilms = findLikedFilms(Set.of(user.getId())).getOrDefault(user.getId(), new IntSet());
+        if (jdbcTemplate.update(DELETE_LIKE, user.getId(), film.getId()) == 0) {
+            return false;
+        }
+        jdbcTemplate.update(UPDATE_LIKES_COUNT, -1, film.getId());
+        jdbcTemplate.update(UPDATE_USER_VERSION, user.getId());
+        eventPublisher.publishEvent(new EntitiesChangedEvent(List.of(film.getId()), List.of(user.getId())));
+        likedFilms.remove(film.getId());
+        int[] otherFilmIds = likedFilms.toArray();
+        afterCommit(List.of(() -> likeListener.likeRemoved(user.getId(), film.getId(), otherFilmIds)));
+        return true;
+    }
+
+    /**
+     * Plays the mutations over the likes the users already have and writes only the net result:
+     * one batch of inserts, one of deletes, one update of likes count per changed film
+     * and one update of version per changed user.
+     */
+    @Override
+    @Transactional
+    public boolean[] applyLikes(List<LikeMutation> mutations, Map<Integer, User> users, Map<Integer, Film> films) {
+        Map<Integer, IntSet> likedFilms = findLikedFilms(users.keySet());
+        Set<Long> initialLikes = new HashSet<>();
+        likedFilms.forEach((userId, filmIds) -> {
+            for (int filmId : filmIds.toArray()) {
+                initialLikes.add(toLike(userId, filmId));
+            }
+        });
+        Set<Long> touchedLikes = new LinkedHashSet<>();
+        List<Runnable> notifications = new ArrayList<>();
+        boolean[] changed = new boolean[mutations.size()];
+        for (int i = 0; i < mutations.size(); i++) {
+            LikeMutation mutation = mutations.get(i);
+            int userId = mutation.getUserId();
+            int filmId = mutation.getFilmId();
+            IntSet userLikedFilms = likedFilms.computeIfAbsent(userId, id -> new IntSet());
+            int[] otherFilmIds = userLikedFilms.toArray();
+            if (mutation.getAction() == MutationAction.ADD) {
+                changed[i] = userLikedFilms.add(filmId);
+                if (changed[i]) {
+                    notifications.add(() -> likeListener.likeAdded(userId, filmId, otherFilmIds));
+                }
+            } else {
+                changed[i] = userLikedFilms.remove(filmId);
+                if (changed[i]) {
+                    int[] remainingFilmIds = userLikedFilms.toArray();
+                    notifications.add(() -> likeListener.likeRemoved(userId, filmId, remainingFilmIds));
+                }
+            }
+            touchedLikes.add(toLike(userId, filmId));
+        }
+        List<int[]> addedLikes = new ArrayList<>();
+        List<int[]> removedLikes = new ArrayList<>();
+        for (long like : touchedLikes) {
+            boolean isLiked = likedFilms.get((int) (like >>> 32)).contains((int) like);
+            if (isLiked != initialLikes.contains(like)) {
+                (isLiked ? addedLikes : removedLikes).add(new int[]{(int) (like >>> 32), (int) like});
+            }
+        }
+        Map<Integer, Integer> likesCountDeltas = new HashMap<>();
+        Set<Integer> changedUserIds = new LinkedHashSet<>();
+        int[][] insertCounts = jdbcTemplate.batchUpdate(INSERT_LIKE, addedLikes, batchSize, (statement, like) -> {
+            statement.setInt(1, like[0]);
+            statement.setInt(2, like[1]);
+            statement.setInt(3, like[0]);
+            statement.setInt(4, like[1]);
+        });
+        applyCounts(addedLikes, insertCounts, 1, likesCountDeltas, changedUserIds);
+        int[][] deleteCounts = jdbcTemplate.batchUpdate(DELETE_LIKE, removedLikes, batchSize, (statement, like) -> {
+            statement.setInt(1, like[0]);
+            statement.setInt(2, like[1]);
+        });
+        applyCounts(removedLikes, deleteCounts, -1, likesCountDeltas, changedUserIds);
+        // A film liked and unliked within the batch keeps its count, but its version still moves
+        List<Object[]> likesCountUpdates = new ArrayList<>();
+        likesCountDeltas.forEach((filmId, delta) -> likesCountUpdates.add(new Object[]{delta, filmId}));
+        jdbcTemplate.batchUpdate(UPDATE_LIKES_COUNT, likesCountUpdates);
+        List<Object[]> userVersionUpdates = new ArrayList<>();
+        for (int userId : changedUserIds) {
+            userVersionUpdates.add(new Object[]{userId});
+        }
+        jdbcTemplate.batchUpdate(UPDATE_USER_VERSION, userVersionUpdates);
+        eventPublisher.publishEvent(new EntitiesChangedEvent(likesCountDeltas.keySet(), changedUserIds));
+        afterCommit(notifications);
+        return changed;
+    }
+
+    @Override
+    public long countLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Long.class);
+    }
+
+    // Counts only the rows which have actually changed, in case a concurrent transaction got there first
+    private static void applyCounts(List<int[]> likes, int[][] counts, int delta,
+                                    Map<Integer, Integer> likesCountDeltas, Set<Integer> changedUserIds) {
+        int i = 0;
+        for (int[] batchCounts : counts) {
+            for (int count : batchCounts) {
+                int[] like = likes.get(i++);
+                if (count == 0) {
+                    continue;
+                }
+                likesCountDeltas.merge(like[1], delta, Integer::sum);
+                changedUserIds.add(like[0]);
+            }
+        }
+    }
+
+    // Locks the rows of the users in the order of their ids, so that batches of the same users do not deadlock
+    private Map<Integer, IntSet> findLikedFilms(Set<Integer> userIds) {
+        Map<Integer, IntSet> likedFilms = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return likedFilms;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource("userIds", userIds);
+        namedJdbcTemplate.queryForList("SELECT id FROM users WHERE id IN (:userIds) ORDER BY id FOR UPDATE",
+                parameters, Integer.class);
+        namedJdbcTemplate.query("SELECT user_id, film_id FROM likes WHERE user_id IN (:userIds)", parameters,
+                (RowCallbackHandler) resultSet -> likedFilms
+                        .computeIfAbsent(resultSet.getInt(1), id -> new IntSet())
+                        .add(resultSet.getInt(2)));
+        return likedFilms;
+    }
+
+    // Rolled back likes are never reported
+    private static void afterCommit(List<Runnable> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                notifications.forEach(Runnable::run);
+            }
+        });
+    }
+
+    private static long toLike(int userId, int filmId) {
+        return (long) userId << 32 | filmId;
+    }
+}
@@ -0,0 +1,278 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Users with their friends and liked films, which are read from the join tables
+ * with one query per table for a whole list of users.
+ */
+@Slf4j
+@Repository
+@Profile("jdbc")
+@RequiredArgsConstructor
+public class JdbcUserRepository implements UserRepository {
+
+    private static final String INSERT_USER =
+            "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+
+    private static final String UPDATE_USER =
+            "UPDATE users SET email = ?, login = ?, name = ?, birthday = ?, version = version + 1 WHERE id = ?";
+
+    private static final String SELECT_USERS = "SELECT u.id, u.email, u.login, u.name, u.birthday, u.version FROM users AS u";
+
+    private static final RowMapper<User> USER_MAPPER = JdbcUserRepository::mapUser;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${filmorate.jdbc.batch-size}")
+    private int batchSize;
+
+    @Override
+    public User save(User user) {
+        return insert(List.of(user)).get(0);
+    }
+
+    @Override
+    @Transactional
+    public User update(User user) {
+        User persistedUser = replace(List.of(user)).get(0);
+        if (persistedUser == null) {
+            throw new UserNotFoundException(user);
+        }
+        return persistedUser;
+    }
+
+    @Override
+    @Transactional
+    public List<User> saveAll(List<User> userBatch) {
+        List<User> persistedUsers = insert(userBatch);
+        log.info("{} users created.", persistedUsers.size());
+        return persistedUsers;
+    }
+
+    @Override
+    @Transactional
+    public List<User> updateAll(List<User> userBatch) {
+        List<User> persistedUsers = replace(userBatch);
+        log.info("{} of {} users have been updated.",
+                persistedUsers.stream().filter(Objects::nonNull).count(), userBatch.size());
+        return persistedUsers;
+    }
+
+    @Override
+    @Transactional
+    public User delete(User user) {
+        User removedUser = findById(user.getId());
+        if (removedUser != null) {
+            // Likes go away with the user, so the films they counted for lose them
+            jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1, version = version + 1 "
+                    + "WHERE id IN (SELECT film_id FROM likes WHERE user_id = ?)", user.getId());
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+            // So do the friendships, so the friends lose the user
+            eventPublisher.publishEvent(new EntitiesChangedEvent(toList(removedUser.getLikedFilms()),
+                    toList(removedUser.getFriends())));
+        }
+        return removedUser;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public User findById(Integer userId) {
+        return withRelations(jdbcTemplate.query(SELECT_USERS + " WHERE u.id = ?", USER_MAPPER, userId))
+                .stream()
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Collection<User> findAll() {
+        Map<Integer, User> users = toMap(jdbcTemplate.query(SELECT_USERS + " ORDER BY u.id", USER_MAPPER));
+        jdbcTemplate.query("SELECT user_id, friend_id FROM friendships",
+                (RowCallbackHandler) resultSet -> addRelation(users, resultSet, User::getFriends));
+        jdbcTemplate.query("SELECT user_id, film_id FROM likes",
+                (RowCallbackHandler) resultSet -> addRelation(users, resultSet, User::getLikedFilms));
+        return users.values();
+    }
+
+    @Override
+    public long count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Collection<User> findAllAfter(Integer afterId, int limit) {
+        return withRelations(jdbcTemplate.query(SELECT_USERS + " WHERE u.id > ? ORDER BY u.id LIMIT ?", USER_MAPPER,
+                afterId == null ? 0 : afterId, limit));
+    }
+
+    /**
+     * Scans the primary key range of the user's friendships.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> findFriends(int userId) {
+        return withRelations(jdbcTemplate.query(SELECT_USERS
+                + " JOIN friendships AS f ON f.friend_id = u.id"
+                + " WHERE f.user_id = ?"
+                + " ORDER BY u.id", USER_MAPPER, userId));
+    }
+
+    /**
+     * Joins the primary key ranges of both users' friendships, the sets are not intersected by the application.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> findMutualFriends(int userId, int otherUserId) {
+        return withRelations(jdbcTemplate.query(SELECT_USERS
+                + " JOIN friendships AS f ON f.friend_id = u.id"
+                + " JOIN friendships AS o ON o.friend_id = f.friend_id AND o.user_id = ?"
+                + " WHERE f.user_id = ?"
+                + " ORDER BY u.id", USER_MAPPER, otherUserId, userId));
+    }
+
+    // Inserts the users in batches of batchSize rows and reads the generated ids back in the same order
+    private List<User> insert(List<User> userBatch) {
+        List<User> persistedUsers = new ArrayList<>(userBatch.size());
+        if (userBatch.isEmpty()) {
+            return persistedUsers;
+        }
+        return jdbcTemplate.execute((ConnectionCallback<List<User>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_USER, new String[]{"id"})) {
+                for (int from = 0; from < userBatch.size(); from += batchSize) {
+                    List<User> chunk = userBatch.subList(from, Math.min(from + batchSize, userBatch.size()));
+                    for (User user : chunk) {
+                        statement.setString(1, user.getEmail());
+                        statement.setString(2, user.getLogin());
+                        statement.setString(3, user.getName());
+                        statement.setDate(4, Date.valueOf(user.getBirthday()));
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (User user : chunk) {
+                            if (!keys.next()) {
+                                throw new SQLException("Id of an inserted user has not been returned.");
+                            }
+                            persistedUsers.add(user
+                                    .withId(keys.getInt(1))
+                                    .withFriends(new IntSet())
+                                    .withLikedFilms(new IntSet()));
+                        }
+                    }
+                }
+            }
+            return persistedUsers;
+        });
+    }
+
+    // Updates the users with one batch and reads them back, null in place of a user who does not exist
+    private List<User> replace(List<User> userBatch) {
+        List<User> existingUsers = userBatch
+                .stream()
+                .filter(user -> user.getId() != null)
+                .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(UPDATE_USER, existingUsers, batchSize, (statement, user) -> {
+            statement.setString(1, user.getEmail());
+            statement.setString(2, user.getLogin());
+            statement.setString(3, user.getName());
+            statement.setDate(4, Date.valueOf(user.getBirthday()));
+            statement.setInt(5, user.getId());
+        });
+        Map<Integer, User> persistedUsers = findAllByIds(existingUsers
+                .stream()
+                .map(User::getId)
+                .collect(Collectors.toList()));
+        return userBatch
+                .stream()
+                .map(user -> user.getId() == null ? null : persistedUsers.get(user.getId()))
+                .collect(Collectors.toList());
+    }
+
+    private Map<Integer, User> findAllByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return toMap(withRelations(namedJdbcTemplate.query(SELECT_USERS + " WHERE u.id IN (:ids)",
+                new MapSqlParameterSource("ids", ids), USER_MAPPER)));
+    }
+
+    private List<User> withRelations(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Integer, User> usersById = toMap(users);
+        MapSqlParameterSource parameters = new MapSqlParameterSource("ids", usersById.keySet());
+        namedJdbcTemplate.query("SELECT user_id, friend_id FROM friendships WHERE user_id IN (:ids)", parameters,
+                (RowCallbackHandler) resultSet -> addRelation(usersById, resultSet, User::getFriends));
+        namedJdbcTemplate.query("SELECT user_id, film_id FROM likes WHERE user_id IN (:ids)", parameters,
+                (RowCallbackHandler) resultSet -> addRelation(usersById, resultSet, User::getLikedFilms));
+        return users;
+    }
+
+    private static void addRelation(Map<Integer, User> users, ResultSet resultSet, Function<User, IntSet> relation)
+            throws SQLException {
+        User user = users.get(resultSet.getInt(1));
+        if (user != null) {
+            relation.apply(user).add(resultSet.getInt(2));
+        }
+    }
+
+    private static List<Integer> toList(IntSet ids) {
+        return Arrays.stream(ids.toArray()).boxed().collect(Collectors.toList());
+    }
+
+    private static Map<Integer, User> toMap(List<User> users) {
+        return users
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity(), (user, duplicate) -> user,
+                        LinkedHashMap::new));
+    }
+
+    private static User mapUser(ResultSet resultSet, int rowNum) throws SQLException {
+        return new User(
+                resultSet.getInt("id"),
+                resultSet.getString("email"),
+                resultSet.getString("login"),
+                resultSet.getString("name"),
+                resultSet.getDate("birthday").toLocalDate(),
+                new IntSet(),
+                new IntSet(),
+                new AtomicLong(resultSet.getLong("version")));
+    }
+}
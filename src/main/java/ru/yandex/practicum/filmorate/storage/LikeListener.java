@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Likes applied by a like repository, each with the other films the user liked at that very moment,
+ * so that a pair of films liked by one user is seen once whatever order the likes come in.
+ * The in-memory repository reports under the monitor of the user's liked films, a database one
+ * after the transaction has committed.
+ */
+public interface LikeListener {
+
+    LikeListener NONE = new LikeListener() {
+    };
+
+    default void likeAdded(int userId, int filmId, int[] otherFilmIds) {
+    }
+
+    default void likeRemoved(int userId, int filmId, int[] otherFilmIds) {
+    }
+}
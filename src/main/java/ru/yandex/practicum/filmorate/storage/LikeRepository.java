@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The in-memory repository keeps likes in the users and films themselves, a database one leaves
+ * the given entities as they are, so callers read them again to see a change.
+ */
+public interface LikeRepository {
+
+    boolean addLike(User user, Film film);
+
+    boolean removeLike(User user, Film film);
+
+    /**
+     * Applies like mutations in one pass; users and films referenced by them must be present in the maps.
+     * Returns for every mutation whether it has changed anything.
+     */
+    boolean[] applyLikes(List<LikeMutation> mutations, Map<Integer, User> users, Map<Integer, Film> films);
+
+    long countLikes();
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+
+/**
+ * Puts read-through caches in front of the JDBC repositories, so that the lookups of a film and a user
+ * made by every like and friend call do not reach the database.
+ */
+@Configuration
+@Profile("jdbc")
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+public class RepositoryCacheConfig {
+
+    @Value("${filmorate.cache.maximum-size}")
+    private long maximumSize;
+
+    @Value("${filmorate.cache.expire-after-write}")
+    private Duration expireAfterWrite;
+
+    @Bean
+    @Primary
+    public CachingFilmRepository cachingFilmRepository(JdbcFilmRepository filmRepository) {
+        return new CachingFilmRepository(filmRepository, maximumSize, expireAfterWrite, Ticker.systemTicker());
+    }
+
+    @Bean
+    @Primary
+    public CachingUserRepository cachingUserRepository(JdbcUserRepository userRepository) {
+        return new CachingUserRepository(userRepository, maximumSize, expireAfterWrite, Ticker.systemTicker());
+    }
+}
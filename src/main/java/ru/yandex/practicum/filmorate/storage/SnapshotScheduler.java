@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically seals the current write-ahead log segment, snapshots the repositories
+ * and deletes the log segments covered by the snapshot.
+ */
+@Slf4j
+@Component
+@Profile("!jdbc")
+@RequiredArgsConstructor
+@DependsOn("writeAheadLogLoader")
+@ConditionalOnProperty(name = {"filmorate.wal.enabled", "filmorate.snapshot.enabled"}, havingValue = "true")
+public class SnapshotScheduler {
+
+    private final WriteAheadLog writeAheadLog;
+    private final SnapshotStore snapshotStore;
+    private final InMemoryFilmRepository filmRepository;
+    private final InMemoryUserRepository userRepository;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${filmorate.snapshot.interval-ms}")
+    private long intervalMillis;
+
+    @PostConstruct
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                takeSnapshot();
+            } catch (IOException e) {
+                log.error("Snapshot has not been written, the log is kept.", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void takeSnapshot() throws IOException {
+        long startTime = System.nanoTime();
+        long coveredSegment = writeAheadLog.rotate();
+        snapshotStore.write(coveredSegment, filmRepository.findAll(), userRepository.findAll());
+        writeAheadLog.deleteSegmentsUpTo(coveredSegment);
+        log.info("Snapshot covering log segment {} has been written in {} ms.", coveredSegment,
+                (System.nanoTime() - startTime) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+}
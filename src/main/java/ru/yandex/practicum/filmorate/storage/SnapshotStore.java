@@ -0,0 +1,335 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshots of films, users, likes and friendships, each named after the last write-ahead log
+ * segment it covers ({@code path.0000000001} and so on). A snapshot is split into independent chunks of up to
+ * {@link #CHUNK_SIZE} entities with their own CRC32, listed in a table at the end of the file, so that loading
+ * maps the chunks into memory and decodes them in parallel: films and users first, then likes and friendships.
+ * <p>
+ * Layout: magic (int), version (int), covered segment (long), chunks, chunk table, offset of the table (long).
+ * A chunk is the count of its records (int) and the records; the table is the count of chunks (int) and
+ * kind (byte), offset (long), size (int), CRC32 (int) per chunk.
+ */
+@Slf4j
+public class SnapshotStore {
+
+    static final int CHUNK_SIZE = 1 << 16;
+
+    private static final int MAGIC = 0x46534E50;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES;
+
+    private static final byte FILMS = 1;
+    private static final byte USERS = 2;
+    // Liked films and friends with greater ids of a user
+    private static final byte EDGES = 3;
+
+    private final Path path;
+    private final Pattern snapshotPattern;
+
+    public SnapshotStore(Path path) {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            parent.toFile().mkdirs();
+        }
+        this.path = path;
+        this.snapshotPattern = Pattern.compile(Pattern.quote(path.getFileName().toString()) + "\\.(\\d{10})");
+    }
+
+    /**
+     * Writes the given entities while they keep changing and deletes the older snapshots. The scan is fuzzy:
+     * a change made during it may be missed, but its record follows the covered segment in the log.
+     */
+    public void write(long coveredSegment, Collection<Film> films, Collection<User> users) throws IOException {
+        Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChunkedWriter writer = new ChunkedWriter(channel);
+            writer.writeHeader(coveredSegment);
+            Chunk filmChunk = new Chunk(FILMS);
+            for (Film film : films) {
+                EntityCodec.writeFilm(filmChunk.out, film);
+                writer.next(filmChunk);
+            }
+            writer.flush(filmChunk);
+            Chunk userChunk = new Chunk(USERS);
+            Chunk edgeChunk = new Chunk(EDGES);
+            for (User user : users) {
+                EntityCodec.writeUser(userChunk.out, user);
+                writer.next(userChunk);
+                writeEdges(edgeChunk.out, user);
+                writer.next(edgeChunk);
+            }
+            writer.flush(userChunk);
+            writer.flush(edgeChunk);
+            writer.writeTable();
+            channel.force(true);
+        }
+        Files.move(temporaryPath, getSnapshotPath(coveredSegment), StandardCopyOption.ATOMIC_MOVE);
+        for (Path snapshot : findSnapshots()) {
+            if (getSnapshotNumber(snapshot) < coveredSegment) {
+                Files.delete(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Loads the latest snapshot into the target and returns the last log segment it covers, 0 if there is none.
+     */
+    public long load(ChangeLog target) throws IOException {
+        List<Path> snapshots = findSnapshots();
+        if (snapshots.isEmpty()) {
+            return 0;
+        }
+        Path snapshot = snapshots.get(snapshots.size() - 1);
+        long startTime = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + Integer.BYTES + Long.BYTES) {
+                throw new IOException("Snapshot " + snapshot + " is truncated.");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(snapshot + " is not a snapshot of version " + VERSION + ".");
+            }
+            long coveredSegment = header.getLong();
+            long tableOffset = channel.map(FileChannel.MapMode.READ_ONLY, size - Long.BYTES, Long.BYTES).getLong();
+            if (tableOffset < HEADER_SIZE || tableOffset > size - Long.BYTES - Integer.BYTES) {
+                throw new IOException("Snapshot " + snapshot + " has a broken chunk table.");
+            }
+            List<ChunkInfo> chunks = readTable(
+                    channel.map(FileChannel.MapMode.READ_ONLY, tableOffset, size - Long.BYTES - tableOffset));
+            // Likes and friendships refer to films and users, so those are loaded completely first
+            loadChunks(channel, snapshot, chunks, target, FILMS, USERS);
+            loadChunks(channel, snapshot, chunks, target, EDGES);
+            log.info("Snapshot {} of {} chunks has been loaded in {} ms.", snapshot, chunks.size(),
+                    (System.nanoTime() - startTime) / 1_000_000);
+            return coveredSegment;
+        }
+    }
+
+    private static void writeEdges(DataOutputStream out, User user) throws IOException {
+        int[] likedFilms = user.getLikedFilms().toArray();
+        int[] friends = user.getFriends().toArray();
+        // Both directions of a friendship are restored from the record of the user with the lower id
+        int firstGreaterFriend = -Arrays.binarySearch(friends, user.getId()) - 1;
+        out.writeInt(user.getId());
+        out.writeInt(likedFilms.length);
+        for (int filmId : likedFilms) {
+            out.writeInt(filmId);
+        }
+        out.writeInt(friends.length - firstGreaterFriend);
+        for (int i = firstGreaterFriend; i < friends.length; i++) {
+            out.writeInt(friends[i]);
+        }
+    }
+
+    private static void loadChunks(FileChannel channel, Path snapshot, List<ChunkInfo> chunks, ChangeLog target,
+                                   byte... kinds) throws IOException {
+        List<ChunkInfo> selectedChunks = chunks
+                .stream()
+                .filter(chunk -> Arrays.binarySearch(kinds, chunk.getKind()) >= 0)
+                .collect(Collectors.toList());
+        try {
+            selectedChunks.parallelStream().forEach(chunk -> {
+                try {
+                    loadChunk(channel.map(FileChannel.MapMode.READ_ONLY, chunk.getOffset(), chunk.getSize()),
+                            chunk, target);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(snapshot + ": " + e.getMessage(), e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void loadChunk(MappedByteBuffer buffer, ChunkInfo chunk, ChangeLog target) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if ((int) crc.getValue() != chunk.getChecksum()) {
+            throw new IOException("Chunk at " + chunk.getOffset() + " is corrupted.");
+        }
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            switch (chunk.getKind()) {
+                case FILMS:
+                    target.filmSaved(EntityCodec.readFilm(in));
+                    break;
+                case USERS:
+                    target.userSaved(EntityCodec.readUser(in));
+                    break;
+                case EDGES:
+                    int userId = in.readInt();
+                    int likedFilmsCount = in.readInt();
+                    for (int j = 0; j < likedFilmsCount; j++) {
+                        target.likeAdded(userId, in.readInt());
+                    }
+                    int friendsCount = in.readInt();
+                    for (int j = 0; j < friendsCount; j++) {
+                        target.friendshipAdded(userId, in.readInt());
+                    }
+                    break;
+                default:
+                    throw new IOException("Unknown snapshot chunk kind " + chunk.getKind() + ".");
+            }
+        }
+    }
+
+    private static List<ChunkInfo> readTable(ByteBuffer table) throws IOException {
+        int count = table.getInt();
+        if (count < 0 || table.remaining() != count * (1 + Long.BYTES + 2 * Integer.BYTES)) {
+            throw new IOException("Chunk table is broken.");
+        }
+        List<ChunkInfo> chunks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            chunks.add(new ChunkInfo(table.get(), table.getLong(), table.getInt(), table.getInt()));
+        }
+        return chunks;
+    }
+
+    private List<Path> findSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(path.toAbsolutePath().getParent())) {
+            return files
+                    .filter(file -> snapshotPattern.matcher(file.getFileName().toString()).matches())
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private long getSnapshotNumber(Path snapshot) {
+        Matcher matcher = snapshotPattern.matcher(snapshot.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(snapshot + " is not a snapshot " + path + ".");
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private Path getSnapshotPath(long coveredSegment) {
+        return path.resolveSibling(String.format("%s.%010d", path.getFileName(), coveredSegment));
+    }
+
+    @Value
+    private static class ChunkInfo {
+        byte kind;
+        long offset;
+        int size;
+        int checksum;
+    }
+
+    private static class Chunk {
+
+        final byte kind;
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        int count;
+
+        Chunk(byte kind) {
+            this.kind = kind;
+        }
+    }
+
+    private static class ChunkedWriter {
+
+        private final FileChannel channel;
+        private final List<ChunkInfo> chunks = new ArrayList<>();
+        private long position;
+
+        ChunkedWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeHeader(long coveredSegment) throws IOException {
+            write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putLong(coveredSegment).flip());
+        }
+
+        // Called after a record has been added to the chunk
+        void next(Chunk chunk) throws IOException {
+            if (++chunk.count == CHUNK_SIZE) {
+                flush(chunk);
+            }
+        }
+
+        void flush(Chunk chunk) throws IOException {
+            if (chunk.count == 0) {
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + chunk.bytes.size())
+                    .putInt(chunk.count)
+                    .put(chunk.bytes.toByteArray())
+                    .flip();
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            chunks.add(new ChunkInfo(chunk.kind, position, buffer.remaining(), (int) crc.getValue()));
+            write(buffer);
+            chunk.bytes.reset();
+            chunk.count = 0;
+        }
+
+        void writeTable() throws IOException {
+            long tableOffset = position;
+            ByteBuffer table = ByteBuffer.allocate(Integer.BYTES
+                    + chunks.size() * (1 + Long.BYTES + 2 * Integer.BYTES) + Long.BYTES);
+            table.putInt(chunks.size());
+            for (ChunkInfo chunk : chunks) {
+                table.put(chunk.getKind()).putLong(chunk.getOffset()).putInt(chunk.getSize()).putInt(chunk.getChecksum());
+            }
+            write(table.putLong(tableOffset).flip());
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            position += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
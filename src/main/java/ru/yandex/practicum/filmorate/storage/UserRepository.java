@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+
+public interface UserRepository extends AbstractRepository<User> {
+
+    /**
+     * Friends of an existing user in ascending id order.
+     */
+    List<User> findFriends(int userId);
+
+    /**
+     * Friends shared by two existing users in ascending id order.
+     */
+    List<User> findMutualFriends(int userId, int otherUserId);
+}
@@ -0,0 +1,537 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of repository changes. Writers copy their records into an in-memory buffer,
+ * a single flusher thread writes the buffer to the file and forces it to disk once
+ * {@code fsyncBatchSize} records have piled up or {@code fsyncIntervalMillis} has passed, so one
+ * fsync covers a whole group of changes. With {@code awaitFsync} a writer is acknowledged only once
+ * the fsync covering its records is done, through {@link #awaitPersisted()}: a waiting writer has
+ * the flusher start at once, and the writers coming during that fsync share the next one. Without it
+ * writers never wait for the disk and a crash may lose the changes of the last interval.
+ * <p>
+ * Record layout: body length (int), CRC32 of the body (int), body = type (byte) + payload.
+ * The log must be replayed before it accepts new records; a torn record at its end is cut off.
+ * <p>
+ * Records go to the file at {@code path}. {@link #rotate()} seals it into a numbered segment
+ * ({@code path.0000000001} and so on), so that a snapshot can cover the sealed segments and they can be deleted.
+ */
+@Slf4j
+public class WriteAheadLog implements ChangeLog, Closeable {
+
+    private static final byte FILM_SAVED = 1;
+    private static final byte FILM_UPDATED = 2;
+    private static final byte FILM_DELETED = 3;
+    private static final byte USER_SAVED = 4;
+    private static final byte USER_UPDATED = 5;
+    private static final byte USER_DELETED = 6;
+    private static final byte LIKE_ADDED = 7;
+    private static final byte LIKE_REMOVED = 8;
+    private static final byte FRIENDSHIP_ADDED = 9;
+    private static final byte FRIENDSHIP_REMOVED = 10;
+
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    static final int MAX_BODY_SIZE = 1 << 20;
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    private enum State { RECOVERING, OPEN, FAILED, CLOSED }
+
+    private final Path path;
+    private final Pattern segmentPattern;
+    private final int fsyncBatchSize;
+    private final long fsyncIntervalNanos;
+    private final boolean awaitFsync;
+    private final Thread flusher = new Thread(this::flush, "wal-flusher");
+
+    private final Object lock = new Object();
+
+    // Changes reported before they become visible, counted per epoch; rotation starts a new epoch.
+    // Not LongAdder: its sum is no snapshot and may read 0 while a sealed change is still in progress
+    private final AtomicLong[] trackedChanges = {new AtomicLong(), new AtomicLong()};
+
+    private volatile State state = State.RECOVERING;
+
+    // Written by the flusher only once the log is open
+    private FileChannel channel;
+
+    private long lastSegment;
+
+    private boolean isRotationRequested;
+
+    private volatile int epoch;
+
+    // Records of writers, swapped with the standby buffer by the flusher
+    private ByteBuffer activeBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    private ByteBuffer standbyBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    private int pendingCount;
+
+    // Records appended so far, numbering them
+    private long appendedCount;
+
+    // Records forced to disk so far, moved by the flusher under the lock
+    private volatile long persistedCount;
+
+    // The last record a writer waits to be persisted
+    private long awaitedCount;
+
+    // Number of the last record appended by the thread
+    private final ThreadLocal<long[]> lastAppended = ThreadLocal.withInitial(() -> new long[1]);
+
+    public WriteAheadLog(Path path, int fsyncBatchSize, long fsyncIntervalMillis, boolean awaitFsync)
+            throws IOException {
+        if (fsyncBatchSize <= 0 || fsyncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Fsync batch size and interval must be positive.");
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            parent.toFile().mkdirs();
+        }
+        this.path = path;
+        this.segmentPattern = Pattern.compile(Pattern.quote(path.getFileName().toString()) + "\\.(\\d{10})");
+        this.channel = openChannel();
+        this.lastSegment = findSegments().stream().mapToLong(this::getSegmentNumber).max().orElse(0);
+        this.fsyncBatchSize = fsyncBatchSize;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        this.awaitFsync = awaitFsync;
+        flusher.setDaemon(true);
+    }
+
+    /**
+     * Passes every intact record of the segments after the covered one and of the current file to the target
+     * in the log order, deletes the covered segments and opens the log for appends. Until then the log drops
+     * records: the repositories only report the changes being recovered.
+     */
+    public void replay(ChangeLog target, long coveredSegment) throws IOException {
+        if (state != State.RECOVERING) {
+            throw new IllegalStateException("Write-ahead log " + path + " has been replayed already.");
+        }
+        deleteSegmentsUpTo(coveredSegment);
+        for (Path segment : findSegments()) {
+            try (FileChannel segmentChannel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                replay(segmentChannel, segment, target);
+            }
+        }
+        long validSize = replay(channel, path, target);
+        if (validSize < channel.size()) {
+            log.warn("Write-ahead log {} has a torn tail, {} bytes are cut off.", path, channel.size() - validSize);
+            channel.truncate(validSize);
+        }
+        channel.position(validSize);
+        synchronized (lock) {
+            // Numbers of deleted segments must not be handed out again
+            lastSegment = Math.max(lastSegment, coveredSegment);
+            state = State.OPEN;
+        }
+        flusher.start();
+    }
+
+    /**
+     * Seals the records written so far into the next segment and waits until every change they report
+     * has become visible in the repositories. Returns the number of the sealed segment.
+     */
+    public synchronized long rotate() throws IOException {
+        int sealedEpoch;
+        long segment;
+        synchronized (lock) {
+            isRotationRequested = true;
+            lock.notifyAll();
+            while (isRotationRequested && state == State.OPEN) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Rotation of write-ahead log " + path + " was interrupted.");
+                }
+            }
+            if (isRotationRequested) {
+                isRotationRequested = false;
+                throw new IOException("Write-ahead log " + path + " is " + state + ".");
+            }
+            sealedEpoch = epoch - 1;
+            segment = lastSegment;
+        }
+        AtomicLong sealedChanges = trackedChanges[sealedEpoch & 1];
+        while (sealedChanges.get() != 0) {
+            Thread.yield();
+        }
+        return segment;
+    }
+
+    public void deleteSegmentsUpTo(long segment) throws IOException {
+        for (Path sealedSegment : findSegments()) {
+            if (getSegmentNumber(sealedSegment) <= segment) {
+                Files.delete(sealedSegment);
+            }
+        }
+    }
+
+    /**
+     * Counts the change until it returns, so that {@link #rotate()} can wait for the changes whose records
+     * have been sealed. Needed for changes that are logged before readers can see them.
+     */
+    @Override
+    public <T> T track(Supplier<T> change) {
+        AtomicLong changes = trackedChanges[epoch & 1];
+        changes.incrementAndGet();
+        try {
+            return change.get();
+        } finally {
+            changes.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits for the fsync covering the records appended by the calling thread, unless the log
+     * acknowledges writers without it. Throws if the log fails before, as the changes may be lost.
+     */
+    @Override
+    public void awaitPersisted() {
+        if (!awaitFsync) {
+            return;
+        }
+        long record = lastAppended.get()[0];
+        if (persistedCount >= record) {
+            return;
+        }
+        synchronized (lock) {
+            if (record > awaitedCount) {
+                awaitedCount = record;
+                lock.notifyAll();
+            }
+            while (persistedCount < record) {
+                if (state == State.FAILED) {
+                    throw new IllegalStateException("Write-ahead log " + path + " has failed before "
+                            + "the change was persisted.");
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Waiting for write-ahead log " + path + " was interrupted.");
+                }
+            }
+        }
+    }
+
+    // Returns the size of the intact records
+    private long replay(FileChannel channel, Path file, ChangeLog target) throws IOException {
+        long size = channel.size();
+        long validSize = 0;
+        int count = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+        while (size - validSize >= HEADER_SIZE) {
+            int bodySize = in.readInt();
+            int checksum = in.readInt();
+            if (bodySize <= 0 || bodySize > MAX_BODY_SIZE || size - validSize - HEADER_SIZE < bodySize) {
+                break;
+            }
+            byte[] body = new byte[bodySize];
+            in.readFully(body);
+            if (checksum != checksum(body)) {
+                break;
+            }
+            apply(body, target);
+            validSize += HEADER_SIZE + bodySize;
+            count++;
+        }
+        log.info("{} records have been replayed from write-ahead log {}.", count, file);
+        return validSize;
+    }
+
+    @Override
+    public void filmSaved(Film film) {
+        append(FILM_SAVED, out -> EntityCodec.writeFilm(out, film));
+    }
+
+    @Override
+    public void filmUpdated(Film film) {
+        append(FILM_UPDATED, out -> EntityCodec.writeFilm(out, film));
+    }
+
+    @Override
+    public void filmDeleted(int filmId) {
+        append(FILM_DELETED, out -> out.writeInt(filmId));
+    }
+
+    @Override
+    public void userSaved(User user) {
+        append(USER_SAVED, out -> EntityCodec.writeUser(out, user));
+    }
+
+    @Override
+    public void userUpdated(User user) {
+        append(USER_UPDATED, out -> EntityCodec.writeUser(out, user));
+    }
+
+    @Override
+    public void userDeleted(int userId) {
+        append(USER_DELETED, out -> out.writeInt(userId));
+    }
+
+    @Override
+    public void likeAdded(int userId, int filmId) {
+        append(LIKE_ADDED, out -> writePair(out, userId, filmId));
+    }
+
+    @Override
+    public void likeRemoved(int userId, int filmId) {
+        append(LIKE_REMOVED, out -> writePair(out, userId, filmId));
+    }
+
+    @Override
+    public void friendshipAdded(int userId, int friendId) {
+        append(FRIENDSHIP_ADDED, out -> writePair(out, userId, friendId));
+    }
+
+    @Override
+    public void friendshipRemoved(int userId, int friendId) {
+        append(FRIENDSHIP_REMOVED, out -> writePair(out, userId, friendId));
+    }
+
+    /**
+     * Writes and forces the buffered records, then closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (state == State.CLOSED) {
+                return;
+            }
+            boolean isFlushing = state == State.OPEN;
+            state = State.CLOSED;
+            lock.notifyAll();
+            if (!isFlushing) {
+                channel.close();
+                return;
+            }
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void append(byte type, RecordWriter writer) {
+        if (state == State.RECOVERING) {
+            return;
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeByte(type);
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] bytes = body.toByteArray();
+        // Replay would take a longer record for a torn one and cut it off along with everything after it
+        if (bytes.length > MAX_BODY_SIZE) {
+            throw new IllegalArgumentException("Record of " + bytes.length + " bytes is longer than "
+                    + MAX_BODY_SIZE + " bytes.");
+        }
+        int checksum = checksum(bytes);
+        synchronized (lock) {
+            if (state != State.OPEN) {
+                throw new IllegalStateException("Write-ahead log " + path + " is " + state + ".");
+            }
+            if (activeBuffer.remaining() < HEADER_SIZE + bytes.length) {
+                activeBuffer = grow(activeBuffer, HEADER_SIZE + bytes.length);
+            }
+            activeBuffer.putInt(bytes.length).putInt(checksum).put(bytes);
+            lastAppended.get()[0] = ++appendedCount;
+            if (++pendingCount == fsyncBatchSize) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Group commit loop of the flusher thread
+    private void flush() {
+        long lastSyncTime = System.nanoTime();
+        while (true) {
+            ByteBuffer buffer;
+            long flushedCount;
+            boolean isRotating;
+            boolean isLast;
+            synchronized (lock) {
+                long waitNanos = fsyncIntervalNanos - (System.nanoTime() - lastSyncTime);
+                while (state == State.OPEN && pendingCount < fsyncBatchSize && waitNanos > 0 && !isRotationRequested
+                        && awaitedCount <= persistedCount) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(lock, waitNanos);
+                    } catch (InterruptedException e) {
+                        // Nobody else is expected to interrupt the flusher: write what is buffered and stop
+                        log.error("Write-ahead log {} flusher has been interrupted.", path);
+                        state = State.FAILED;
+                        break;
+                    }
+                    waitNanos = fsyncIntervalNanos - (System.nanoTime() - lastSyncTime);
+                }
+                buffer = activeBuffer;
+                activeBuffer = standbyBuffer;
+                standbyBuffer = buffer;
+                pendingCount = 0;
+                flushedCount = appendedCount;
+                // The buffer swap is the cut: changes tracked from now on write their records after it
+                isRotating = isRotationRequested;
+                if (isRotating) {
+                    epoch++;
+                }
+                isLast = state != State.OPEN;
+            }
+            try {
+                buffer.flip();
+                boolean hasRecords = buffer.hasRemaining();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (hasRecords) {
+                    channel.force(false);
+                    synchronized (lock) {
+                        persistedCount = flushedCount;
+                        lock.notifyAll();
+                    }
+                }
+                if (isRotating) {
+                    seal();
+                }
+            } catch (IOException e) {
+                log.error("Write-ahead log {} has failed, changes are not persisted anymore.", path, e);
+                synchronized (lock) {
+                    state = State.FAILED;
+                    lock.notifyAll();
+                }
+                return;
+            } finally {
+                buffer.clear();
+            }
+            lastSyncTime = System.nanoTime();
+            if (isLast) {
+                return;
+            }
+        }
+    }
+
+    private void seal() throws IOException {
+        long segment = lastSegment + 1;
+        channel.close();
+        Files.move(path, getSegmentPath(segment), StandardCopyOption.ATOMIC_MOVE);
+        channel = openChannel();
+        synchronized (lock) {
+            lastSegment = segment;
+            isRotationRequested = false;
+            lock.notifyAll();
+        }
+    }
+
+    private FileChannel openChannel() throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // Sealed segments in the log order
+    private List<Path> findSegments() throws IOException {
+        try (Stream<Path> files = Files.list(path.toAbsolutePath().getParent())) {
+            return files
+                    .filter(file -> segmentPattern.matcher(file.getFileName().toString()).matches())
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private long getSegmentNumber(Path segment) {
+        Matcher matcher = segmentPattern.matcher(segment.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(segment + " is not a segment of write-ahead log " + path + ".");
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private Path getSegmentPath(long segment) {
+        return path.resolveSibling(String.format("%s.%010d", path.getFileName(), segment));
+    }
+
+    private static void apply(byte[] body, ChangeLog target) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        switch (type) {
+            case FILM_SAVED:
+                target.filmSaved(EntityCodec.readFilm(in));
+                break;
+            case FILM_UPDATED:
+                target.filmUpdated(EntityCodec.readFilm(in));
+                break;
+            case FILM_DELETED:
+                target.filmDeleted(in.readInt());
+                break;
+            case USER_SAVED:
+                target.userSaved(EntityCodec.readUser(in));
+                break;
+            case USER_UPDATED:
+                target.userUpdated(EntityCodec.readUser(in));
+                break;
+            case USER_DELETED:
+                target.userDeleted(in.readInt());
+                break;
+            case LIKE_ADDED:
+                target.likeAdded(in.readInt(), in.readInt());
+                break;
+            case LIKE_REMOVED:
+                target.likeRemoved(in.readInt(), in.readInt());
+                break;
+            case FRIENDSHIP_ADDED:
+                target.friendshipAdded(in.readInt(), in.readInt());
+                break;
+            case FRIENDSHIP_REMOVED:
+                target.friendshipRemoved(in.readInt(), in.readInt());
+                break;
+            default:
+                throw new IOException("Unknown write-ahead log record type " + type + ".");
+        }
+    }
+
+    private static void writePair(DataOutputStream out, int firstId, int secondId) throws IOException {
+        out.writeInt(firstId);
+        out.writeInt(secondId);
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int required) {
+        ByteBuffer grownBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + required));
+        buffer.flip();
+        return grownBuffer.put(buffer);
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+
+/**
+ * Rebuilds the in-memory repositories from the latest snapshot and the write-ahead log segments after it
+ * before the application starts serving.
+ */
+@Component
+@Profile("!jdbc")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "filmorate.wal.enabled", havingValue = "true")
+public class WriteAheadLogLoader {
+
+    private final WriteAheadLog writeAheadLog;
+    private final SnapshotStore snapshotStore;
+    private final InMemoryFilmRepository filmRepository;
+    private final InMemoryUserRepository userRepository;
+    private final LikeRepository likeRepository;
+    private final FriendshipRepository friendshipRepository;
+
+    @PostConstruct
+    public void load() throws IOException {
+        RepositoryRestorer restorer = new RepositoryRestorer();
+        long coveredSegment = snapshotStore.load(restorer);
+        writeAheadLog.replay(restorer, coveredSegment);
+    }
+
+    private class RepositoryRestorer implements ChangeLog {
+
+        @Override
+        public void filmSaved(Film film) {
+            filmRepository.restore(film);
+        }
+
+        @Override
+        public void filmUpdated(Film film) {
+            filmRepository.restore(film);
+        }
+
+        @Override
+        public void filmDeleted(int filmId) {
+            Film film = filmRepository.findById(filmId);
+            if (film != null) {
+                filmRepository.delete(film);
+            }
+        }
+
+        @Override
+        public void userSaved(User user) {
+            userRepository.restore(user);
+        }
+
+        @Override
+        public void userUpdated(User user) {
+            userRepository.restore(user);
+        }
+
+        @Override
+        public void userDeleted(int userId) {
+            User user = userRepository.findById(userId);
+            if (user != null) {
+                userRepository.delete(user);
+            }
+        }
+
+        @Override
+        public void likeAdded(int userId, int filmId) {
+            User user = userRepository.findById(userId);
+            Film film = filmRepository.findById(filmId);
+            if (user != null && film != null) {
+                likeRepository.addLike(user, film);
+            }
+        }
+
+        @Override
+        public void likeRemoved(int userId, int filmId) {
+            User user = userRepository.findById(userId);
+            Film film = filmRepository.findById(filmId);
+            if (user != null && film != null) {
+                likeRepository.removeLike(user, film);
+            }
+        }
+
+        @Override
+        public void friendshipAdded(int userId, int friendId) {
+            User user = userRepository.findById(userId);
+            User friend = userRepository.findById(friendId);
+            if (user != null && friend != null) {
+                friendshipRepository.addFriendship(user, friend);
+            }
+        }
+
+        @Override
+        public void friendshipRemoved(int userId, int friendId) {
+            User user = userRepository.findById(userId);
+            User friend = userRepository.findById(friendId);
+            if (user != null && friend != null) {
+                friendshipRepository.removeFriendship(user, friend);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Counts of positive int keys in an open-addressing table of parallel key and count arrays,
+ * without boxing either of them. Not thread-safe: parallel counting gives every task a counter
+ * of its own and merges them afterwards.
+ */
+public class IntCounter {
+
+    private static final int EMPTY = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    public IntCounter() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntCounter(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    public void increment(int key) {
+        add(key, 1);
+    }
+
+    public void add(int key, int count) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Only positive keys can be counted, got " + key + ".");
+        }
+        int index = indexOf(keys, key);
+        if (keys[index] == EMPTY) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize();
+                index = indexOf(keys, key);
+            }
+            keys[index] = key;
+            size++;
+        }
+        counts[index] += count;
+    }
+
+    public void addAll(IntCounter other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != EMPTY) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    public int get(int key) {
+        if (key <= 0) {
+            return 0;
+        }
+        int index = indexOf(keys, key);
+        return keys[index] == EMPTY ? 0 : counts[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Up to limit keys with the highest counts, ties broken by the lower key, leaving out the excluded ones.
+     */
+    public int[] top(int limit, IntPredicate excluded) {
+        // Count descending and key ascending in a single long, so that a plain sort ranks the keys
+        long[] ranked = new long[size];
+        int rankedCount = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && !excluded.test(keys[i])) {
+                ranked[rankedCount++] = ((long) (Integer.MAX_VALUE - counts[i]) << 32) | keys[i];
+            }
+        }
+        Arrays.sort(ranked, 0, rankedCount);
+        int[] result = new int[Math.min(limit, rankedCount)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) ranked[i];
+        }
+        return result;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = indexOf(keys, oldKeys[i]);
+                keys[index] = oldKeys[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    // Slot of the key or the empty slot where it belongs
+    private static int indexOf(int[] table, int key) {
+        int mask = table.length - 1;
+        int index = hash(key) & mask;
+        while (table[index] != EMPTY && table[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int hash(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,334 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Set of positive ints without boxing. Small sets are kept as a sorted array, which costs 4 bytes
+ * per value; once a set grows past {@link #SORTED_MAX_SIZE} it turns into an open-addressing table
+ * so that lookups stay O(1) for hubs. All methods are synchronized on the set itself, so the set's
+ * monitor can also be used to group several changes atomically.
+ */
+public class IntSet {
+
+    // Power of two, so that it is a valid table capacity
+    static final int SORTED_MAX_SIZE = 64;
+
+    static final int PARALLEL_MIN_SIZE = 1 << 15;
+
+    private static final int EMPTY = 0;
+    private static final int[] EMPTY_VALUES = new int[0];
+    private static final int INTERSECTION_LEAF_SIZE = 1 << 12;
+
+    // Sorted values in [0, size) or, when hashed, an open-addressing table with EMPTY slots
+    private int[] values = EMPTY_VALUES;
+
+    private int size;
+
+    private boolean hashed;
+
+    @JsonCreator
+    public static IntSet of(int... values) {
+        IntSet set = new IntSet();
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    public synchronized boolean add(int value) {
+        checkValue(value);
+        if (hashed) {
+            return addHashed(value);
+        }
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        if (size == SORTED_MAX_SIZE) {
+            toHashTable();
+            return addHashed(value);
+        }
+        int insertionPoint = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.min(SORTED_MAX_SIZE, Math.max(4, size + (size >> 1))));
+        }
+        System.arraycopy(values, insertionPoint, values, insertionPoint + 1, size - insertionPoint);
+        values[insertionPoint] = value;
+        size++;
+        return true;
+    }
+
+    public synchronized boolean remove(int value) {
+        if (hashed) {
+            return removeHashed(value);
+        }
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    public synchronized boolean contains(int value) {
+        if (hashed) {
+            return value > 0 && indexOf(value) >= 0;
+        }
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Sorted snapshot of the set, also used as its JSON representation.
+     */
+    @JsonValue
+    public synchronized int[] toArray() {
+        int[] result = copyValues();
+        if (hashed) {
+            Arrays.sort(result);
+        }
+        return result;
+    }
+
+    /**
+     * Sorted intersection of two sets. Only the smaller set is copied; its values are probed
+     * against the larger set under the larger set's monitor (galloping search for a sorted array,
+     * hash lookups for a table) and compacted in place. Probing of very large sets is split
+     * across the common ForkJoinPool.
+     */
+    public int[] intersect(IntSet other) {
+        IntSet smaller = size() <= other.size() ? this : other;
+        IntSet larger = smaller == this ? other : this;
+        // Unsorted for a hashed set: only the (usually much smaller) result gets sorted
+        int[] probes = smaller.copyValuesSynchronized();
+        if (probes.length == 0) {
+            return probes;
+        }
+        int[] result;
+        synchronized (larger) {
+            if (!larger.hashed) {
+                // Galloping needs sorted probes; both sets are small here
+                Arrays.sort(probes);
+            }
+            if (probes.length < PARALLEL_MIN_SIZE) {
+                result = Arrays.copyOf(probes, larger.retainContained(probes, 0, probes.length));
+            } else {
+                IntersectionTask task = new IntersectionTask(larger, probes, 0, probes.length);
+                result = new int[ForkJoinPool.commonPool().invoke(task)];
+                task.copyMatches(result, 0);
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IntSet)) return false;
+        return Arrays.equals(toArray(), ((IntSet) o).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private synchronized int[] copyValuesSynchronized() {
+        return copyValues();
+    }
+
+    private int[] copyValues() {
+        if (!hashed) {
+            return Arrays.copyOf(values, size);
+        }
+        int[] result = new int[size];
+        int i = 0;
+        for (int value : values) {
+            if (value != EMPTY) {
+                result[i++] = value;
+            }
+        }
+        return result;
+    }
+
+    // Moves probes[from, to) contained in this set to the beginning of the range, caller holds the monitor
+    private int retainContained(int[] probes, int from, int to) {
+        int count = 0;
+        if (hashed) {
+            for (int i = from; i < to; i++) {
+                if (indexOf(probes[i]) >= 0) {
+                    probes[from + count++] = probes[i];
+                }
+            }
+            return count;
+        }
+        int low = 0;
+        for (int i = from; i < to && low < size; i++) {
+            int index = gallop(probes[i], low);
+            if (index >= 0) {
+                probes[from + count++] = probes[i];
+                low = index + 1;
+            } else {
+                low = -index - 1;
+            }
+        }
+        return count;
+    }
+
+    // Exponential search of a value in the sorted values starting from low
+    private int gallop(int value, int low) {
+        int bound = 1;
+        while (low + bound < size && values[low + bound - 1] < value) {
+            bound <<= 1;
+        }
+        return Arrays.binarySearch(values, low + (bound >> 1), Math.min(low + bound, size), value);
+    }
+
+    private void toHashTable() {
+        int[] sortedValues = values;
+        values = new int[SORTED_MAX_SIZE * 2];
+        for (int i = 0; i < size; i++) {
+            insert(values, sortedValues[i]);
+        }
+        hashed = true;
+    }
+
+    private boolean addHashed(int value) {
+        if (indexOf(value) >= 0) {
+            return false;
+        }
+        if ((size + 1) * 4 > values.length * 3) {
+            resize(values.length * 2);
+        }
+        insert(values, value);
+        size++;
+        return true;
+    }
+
+    private boolean removeHashed(int value) {
+        int index = indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        // Backward shift deletion keeps probe chains unbroken without tombstones
+        int mask = values.length - 1;
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            int candidate = values[next];
+            if (candidate == EMPTY) {
+                break;
+            }
+            int home = hash(candidate) & mask;
+            if (((next - home) & mask) >= ((next - index) & mask)) {
+                values[index] = candidate;
+                index = next;
+            }
+        }
+        values[index] = EMPTY;
+        size--;
+        return true;
+    }
+
+    private int indexOf(int value) {
+        int mask = values.length - 1;
+        int index = hash(value) & mask;
+        while (values[index] != EMPTY) {
+            if (values[index] == value) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        int[] newValues = new int[capacity];
+        for (int value : values) {
+            if (value != EMPTY) {
+                insert(newValues, value);
+            }
+        }
+        values = newValues;
+    }
+
+    private static void insert(int[] table, int value) {
+        int mask = table.length - 1;
+        int index = hash(value) & mask;
+        while (table[index] != EMPTY) {
+            index = (index + 1) & mask;
+        }
+        table[index] = value;
+    }
+
+    private static int hash(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static void checkValue(int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("Only positive ids can be stored, got " + value + ".");
+        }
+    }
+
+    private static class IntersectionTask extends RecursiveTask<Integer> {
+
+        private final IntSet set;
+        private final int[] probes;
+        private final int from;
+        private final int to;
+
+        private IntersectionTask left;
+        private IntersectionTask right;
+        private int count;
+
+        IntersectionTask(IntSet set, int[] probes, int from, int to) {
+            this.set = set;
+            this.probes = probes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= INTERSECTION_LEAF_SIZE) {
+                count = set.retainContained(probes, from, to);
+                return count;
+            }
+            int middle = (from + to) >>> 1;
+            left = new IntersectionTask(set, probes, from, middle);
+            right = new IntersectionTask(set, probes, middle, to);
+            left.fork();
+            count = right.compute() + left.join();
+            return count;
+        }
+
+        int copyMatches(int[] result, int offset) {
+            if (left == null) {
+                System.arraycopy(probes, from, result, offset, count);
+                return offset + count;
+            }
+            return right.copyMatches(result, left.copyMatches(result, offset));
+        }
+    }
+}
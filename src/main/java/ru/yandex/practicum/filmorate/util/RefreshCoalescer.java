@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the refresh of an id in one thread at a time. A thread which asks for it while another one
+ * is refreshing the id leaves at once, and the refreshing thread runs it once more for all such
+ * requests, so a refresh reading the latest state of the id always follows the last change.
+ * Likes of a premiere then move the film in a rating about once per batch of colliding likes
+ * instead of queueing up for it one by one.
+ */
+public class RefreshCoalescer {
+
+    // Requests not yet covered by a refresh, per id; the thread which took it from zero refreshes
+    private final Map<Integer, AtomicInteger> pendingRequests = new ConcurrentHashMap<>();
+
+    public void refresh(int id, IntConsumer refresh) {
+        AtomicInteger pending = pendingRequests.computeIfAbsent(id, key -> new AtomicInteger());
+        if (pending.getAndIncrement() != 0) {
+            return;
+        }
+        int requests = 1;
+        do {
+            refresh.accept(id);
+            requests = pending.addAndGet(-requests);
+        } while (requests != 0);
+    }
+
+    /**
+     * Forgets a removed id. A refresh asked for the id at the same time may still run.
+     */
+    public void remove(int id) {
+        pendingRequests.remove(id);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Int counter which stays a single field until threads collide on it and then spreads
+ * over per-thread cells, as LongAdder does, so a hot counter costs no CAS retries. The count
+ * is the sum of the cells: exact once the updates stop, and never missing an update
+ * which happened before the read. Serialized as a plain number.
+ */
+public class StripedCounter extends Number {
+
+    private final LongAdder cells = new LongAdder();
+
+    public StripedCounter() {
+    }
+
+    public StripedCounter(int initialValue) {
+        cells.add(initialValue);
+    }
+
+    public void increment() {
+        cells.increment();
+    }
+
+    public void decrement() {
+        cells.decrement();
+    }
+
+    public void add(int delta) {
+        cells.add(delta);
+    }
+
+    @JsonValue
+    public int get() {
+        return (int) cells.sum();
+    }
+
+    @Override
+    public int intValue() {
+        return get();
+    }
+
+    @Override
+    public long longValue() {
+        return get();
+    }
+
+    @Override
+    public float floatValue() {
+        return get();
+    }
+
+    @Override
+    public double doubleValue() {
+        return get();
+    }
+
+    @Override
+    public String toString() {
+        return Integer.toString(get());
+    }
+}
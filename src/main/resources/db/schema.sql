@@ -0,0 +1,44 @@
+CREATE TABLE IF NOT EXISTS films
+(
+    id           INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200) NOT NULL,
+    release_date DATE         NOT NULL,
+    duration     INTEGER      NOT NULL,
+    -- Kept in step with the likes table, so that the rating is read straight from films_rating_idx
+    likes_count  INTEGER      NOT NULL DEFAULT 0,
+    -- Moved by every change of the film or its likes, the ETag of the film is built from it
+    version      BIGINT       NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS films_rating_idx ON films (likes_count DESC, id);
+
+CREATE TABLE IF NOT EXISTS users
+(
+    id       INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE         NOT NULL,
+    -- Moved by every change of the user, their friends or likes
+    version  BIGINT       NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS likes
+(
+    user_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    film_id INTEGER NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, film_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_film_idx ON likes (film_id);
+
+-- Both directions of a friendship are stored, so friends of a user are a range of the primary key
+CREATE TABLE IF NOT EXISTS friendships
+(
+    user_id   INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id INTEGER NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_idx ON friendships (friend_id);
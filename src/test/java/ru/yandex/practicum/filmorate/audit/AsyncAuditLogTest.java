@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.audit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncAuditLogTest {
+
+    private final List<String> batches = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("Запись событий пакетами и дописывание буфера при закрытии")
+    void writeInBatchesTest() {
+        AsyncAuditLog auditLog = new AsyncAuditLog(16, AsyncAuditLog.OverflowPolicy.BLOCK, Map.of(), 4, 1000,
+                batches::add);
+        for (int i = 1; i <= 10; i++) {
+            auditLog.record(AuditEventType.LIKE_ADDED, i, 100 + i);
+        }
+        auditLog.record(AuditEventType.FILM_CREATED, 7);
+        auditLog.close();
+
+        List<String> lines = getLines();
+        assertEquals(11, lines.size(), "Wrong count of written events.");
+        assertTrue(lines.get(0).endsWith("User with id=1 has liked film with id=101."), "Wrong message.");
+        assertTrue(lines.get(10).endsWith("Film with id=7 has been created."), "Wrong message.");
+        assertTrue(batches.stream().allMatch(batch -> batch.lines().count() <= 4), "Batch is too large.");
+        assertEquals(0, auditLog.getDroppedCount(), "Events have been dropped.");
+
+        auditLog.record(AuditEventType.FILM_UPDATED, 7);
+        assertEquals(1, auditLog.getDroppedCount(), "Event after close has been accepted.");
+    }
+
+    @Test
+    @DisplayName("Отбрасывание событий при переполнении буфера и выборка по типу")
+    void dropAndSampleTest() throws InterruptedException {
+        CountDownLatch sinkEntered = new CountDownLatch(1);
+        CountDownLatch sinkReleased = new CountDownLatch(1);
+        AsyncAuditLog auditLog = new AsyncAuditLog(4, AsyncAuditLog.OverflowPolicy.DROP,
+                Map.of(AuditEventType.LIKE_NOT_FOUND, 0.0), 1, 1, batch -> {
+            batches.add(batch);
+            sinkEntered.countDown();
+            try {
+                sinkReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // The writer takes the first event and hangs in the sink, so the buffer fills up behind it
+        auditLog.record(AuditEventType.USER_CREATED, 1);
+        assertTrue(sinkEntered.await(5, TimeUnit.SECONDS), "Writer has not started.");
+        for (int i = 2; i <= 10; i++) {
+            auditLog.record(AuditEventType.USER_CREATED, i);
+        }
+        auditLog.record(AuditEventType.LIKE_NOT_FOUND, 1, 1);
+        assertEquals(4, auditLog.getPendingCount(), "Wrong count of pending events.");
+        assertEquals(5, auditLog.getDroppedCount(), "Wrong count of dropped events.");
+
+        sinkReleased.countDown();
+        auditLog.close();
+        assertEquals(5, getLines().size(), "Wrong count of written events.");
+        assertTrue(getLines().stream().noneMatch(line -> line.contains("has not liked")),
+                "Sampled out event has been written.");
+    }
+
+    private List<String> getLines() {
+        return batches.stream()
+                .flatMap(batch -> Arrays.stream(batch.split(System.lineSeparator())))
+                .collect(Collectors.toList());
+    }
+}
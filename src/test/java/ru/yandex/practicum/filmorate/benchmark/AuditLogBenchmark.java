@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.audit.AsyncAuditLog;
+import ru.yandex.practicum.filmorate.audit.AuditEventType;
+import ru.yandex.practicum.filmorate.audit.AuditLog;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BatchExecutor;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendRecommender;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.*;
+
+import javax.validation.Validation;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Likes added and taken back by several threads while every event goes to a log file: formatted
+ * and appended on the calling thread as the services used to, through the async audit log,
+ * and through the async audit log keeping a tenth of the like events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class AuditLogBenchmark {
+
+    private static final int USERS_COUNT = 1_000;
+    private static final int FILMS_COUNT = 1_000;
+
+    @Param({"sync", "async", "sampled"})
+    private String auditLogType;
+
+    private Path logFile;
+    private FileAppender<ILoggingEvent> appender;
+    private AuditLog auditLog;
+    private FilmService filmService;
+
+    @Setup
+    public void setUp() throws IOException {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        Logger rootLogger = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        rootLogger.detachAndStopAllAppenders();
+        logFile = Files.createTempFile("audit", ".log");
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %-5level [%thread] %logger - %msg%n");
+        encoder.start();
+        appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setFile(logFile.toString());
+        appender.setEncoder(encoder);
+        appender.start();
+        Logger auditLogger = context.getLogger("audit");
+        auditLogger.setLevel(Level.INFO);
+        auditLogger.setAdditive(false);
+        auditLogger.addAppender(appender);
+
+        switch (auditLogType) {
+            case "sync":
+                auditLog = (type, subjectId, objectId) -> auditLogger.info(type.getTemplate(), subjectId, objectId);
+                break;
+            case "async":
+                auditLog = new AsyncAuditLog(65536, AsyncAuditLog.OverflowPolicy.BLOCK, Map.of(), 1024, 10,
+                        auditLogger::info);
+                break;
+            case "sampled":
+                auditLog = new AsyncAuditLog(65536, AsyncAuditLog.OverflowPolicy.BLOCK,
+                        Map.of(AuditEventType.LIKE_ADDED, 0.1, AuditEventType.LIKE_REMOVED, 0.1), 1024, 10,
+                        auditLogger::info);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown audit log: " + auditLogType);
+        }
+
+        FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+        BatchExecutor batchExecutor = new BatchExecutor(Validation.buildDefaultValidatorFactory().getValidator());
+        UserRepository userRepository = new InMemoryUserRepository(ChangeLog.NONE);
+        UserService userService = new UserService(userRepository, new InMemoryFriendshipRepository(ChangeLog.NONE),
+                batchExecutor, AuditLog.NONE, new FriendRecommender(userRepository, 1000, 10_000));
+        FilmRepository filmRepository = new InMemoryFilmRepository(popularityIndex, new FilmSearchIndex(),
+                ChangeLog.NONE);
+        FilmRecommender filmRecommender = new FilmRecommender(userRepository, 20, 500);
+        filmService = new FilmService(filmRepository,
+                new InMemoryLikeRepository(popularityIndex, ChangeLog.NONE, filmRecommender), userService,
+                batchExecutor, auditLog, filmRecommender, new TrendingFilms());
+        List<Film> films = new ArrayList<>(FILMS_COUNT);
+        for (int i = 0; i < FILMS_COUNT; i++) {
+            films.add(Film.builder()
+                    .name("Film")
+                    .description("Film descr")
+                    .duration(120)
+                    .releaseDate(LocalDate.of(2022, 11, 1))
+                    .build());
+        }
+        filmService.createFilms(films);
+        List<User> users = new ArrayList<>(USERS_COUNT);
+        for (int i = 1; i <= USERS_COUNT; i++) {
+            users.add(User.builder()
+                    .login("login" + i)
+                    .email("user" + i + "@domain.xxx")
+                    .birthday(LocalDate.of(1980, 1, 1))
+                    .build());
+        }
+        userService.createUsers(users);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (auditLog instanceof AsyncAuditLog) {
+            ((AsyncAuditLog) auditLog).close();
+        }
+        appender.stop();
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public Film addAndRemoveLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int userId = 1 + random.nextInt(USERS_COUNT);
+        int filmId = 1 + random.nextInt(FILMS_COUNT);
+        filmService.addLike(userId, filmId);
+        return filmService.removeLike(userId, filmId);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AuditLogBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
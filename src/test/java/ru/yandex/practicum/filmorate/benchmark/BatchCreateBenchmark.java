@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.audit.AuditLog;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.BatchExecutor;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendRecommender;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.*;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creation of a catalog chunk one film at a time (validation + save per film, as POST /films does)
+ * against one POST /films/batch call. Appenders are detached: both paths still go through INFO logging,
+ * but console output does not dominate the numbers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchCreateBenchmark {
+
+    @Param({"100", "10000"})
+    private int batchSize;
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private final List<Film> films = new ArrayList<>();
+
+    private FilmService filmService;
+
+    @Setup
+    public void setUp() {
+        Logger rootLogger = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        rootLogger.detachAndStopAllAppenders();
+        rootLogger.setLevel(ch.qos.logback.classic.Level.INFO);
+        for (int i = 1; i <= batchSize; i++) {
+            films.add(Film.builder()
+                    .name("Film " + i)
+                    .description("Film descr")
+                    .duration(120)
+                    .releaseDate(LocalDate.of(2022, 11, 1))
+                    .build());
+        }
+    }
+
+    // Fresh storage for every chunk so that both paths insert into maps of the same size
+    @Setup(Level.Invocation)
+    public void setUpStorage() {
+        FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+        BatchExecutor batchExecutor = new BatchExecutor(validator);
+        UserRepository userRepository = new InMemoryUserRepository(ChangeLog.NONE);
+        UserService userService = new UserService(userRepository, new InMemoryFriendshipRepository(ChangeLog.NONE),
+                batchExecutor, AuditLog.NONE, new FriendRecommender(userRepository, 1000, 10_000));
+        FilmRepository filmRepository = new InMemoryFilmRepository(popularityIndex, new FilmSearchIndex(),
+                ChangeLog.NONE);
+        FilmRecommender filmRecommender = new FilmRecommender(userRepository, 20, 500);
+        filmService = new FilmService(filmRepository,
+                new InMemoryLikeRepository(popularityIndex, ChangeLog.NONE, filmRecommender), userService,
+                batchExecutor, AuditLog.NONE, filmRecommender, new TrendingFilms());
+    }
+
+    @Benchmark
+    public List<Film> singleItem() {
+        List<Film> createdFilms = new ArrayList<>(films.size());
+        for (Film film : films) {
+            if (validator.validate(film).isEmpty()) {
+                createdFilms.add(filmService.createFilm(film));
+            }
+        }
+        return createdFilms;
+    }
+
+    @Benchmark
+    public List<BatchItemResult<Film>> batch() {
+        return filmService.createFilms(films);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BatchCreateBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
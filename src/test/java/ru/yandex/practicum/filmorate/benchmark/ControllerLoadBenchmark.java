@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.FilmRepository;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of GET /films/{id} over HTTP when every film lookup blocks for a while, as a lookup in a remote
+ * database would: handlers on the Tomcat pool against async handlers. Each JMH thread keeps one connection
+ * busy, so the connection count is the thread count, e.g. 2000 connections with the p99 in the sample report:
+ * {@code mvn -P benchmark verify -Djmh.include=ControllerLoadBenchmark -Djmh.threads=2000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = "-Xss256k")
+@Threads(2000)
+public class ControllerLoadBenchmark {
+
+    @Param({"sync", "async"})
+    private String execution;
+
+    @Param({"20"})
+    private long lookupLatencyMillis;
+
+    // Used when the JVM has no virtual threads
+    @Param({"1000"})
+    private int poolSize;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .properties("server.port=0",
+                        "server.tomcat.max-connections=10000",
+                        "logging.level.root=WARN",
+                        "filmorate.audit.enabled=false",
+                        "filmorate.web.async.enabled=" + "async".equals(execution),
+                        "filmorate.web.async.pool-size=" + poolSize)
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+                    @Override
+                    public Object postProcessAfterInitialization(Object bean, String beanName) {
+                        return bean instanceof FilmRepository ? withLatency(bean) : bean;
+                    }
+                }))
+                .run();
+        Film film = context.getBean(FilmService.class).createFilm(Film.builder()
+                .name("Film")
+                .description("Film descr")
+                .duration(120)
+                .releaseDate(LocalDate.of(2022, 11, 1))
+                .build());
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/films/" + film.getId())).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getFilm() throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private Object withLatency(Object repository) {
+        ProxyFactory proxyFactory = new ProxyFactory(repository);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            if (invocation.getMethod().getName().startsWith("find")) {
+                Thread.sleep(lookupLatencyMillis);
+            }
+            return invocation.proceed();
+        });
+        return proxyFactory.getProxy();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ControllerLoadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
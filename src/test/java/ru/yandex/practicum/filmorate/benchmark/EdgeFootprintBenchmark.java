@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Retained heap per 1M edges for boxed HashSet adjacency against IntSet. This is a footprint
+ * measurement rather than a JMH benchmark: run main() with a fixed heap, e.g. -Xmx2g.
+ */
+public class EdgeFootprintBenchmark {
+
+    private static final int EDGES_COUNT = 1_000_000;
+
+    public static void main(String[] args) {
+        for (int degree : new int[]{10, 100, 10_000}) {
+            int nodesCount = EDGES_COUNT / degree;
+            long hashSetBytes = measure(nodesCount, degree, i -> new HashSet<Integer>(), Set::add);
+            long intSetBytes = measure(nodesCount, degree, i -> new IntSet(), IntSet::add);
+            System.out.printf("degree=%d: HashSet<Integer> %.1f MB, IntSet %.1f MB per 1M edges%n",
+                    degree, hashSetBytes / 1e6, intSetBytes / 1e6);
+        }
+    }
+
+    private static <T> long measure(int nodesCount, int degree, IntFunction<T> factory, EdgeAdder<T> adder) {
+        Random random = new Random(42);
+        long before = usedHeap();
+        List<T> nodes = new ArrayList<>(nodesCount);
+        for (int i = 0; i < nodesCount; i++) {
+            T node = factory.apply(i);
+            for (int j = 0; j < degree; j++) {
+                // Ids above the Integer cache, as in a real user base
+                adder.add(node, 1_000 + random.nextInt(10_000_000));
+            }
+            nodes.add(node);
+        }
+        long after = usedHeap();
+        if (nodes.size() != nodesCount) {
+            throw new IllegalStateException();
+        }
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private interface EdgeAdder<T> {
+        void add(T node, int value);
+    }
+}
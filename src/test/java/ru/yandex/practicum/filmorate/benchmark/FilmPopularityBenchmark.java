@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmPopularityIndex;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmPopularityBenchmark {
+
+    private static final Comparator<Film> filmPopularityComparator = Comparator
+            .comparing((Film film) -> film.getLikesCount().intValue()).reversed();
+
+    @Param({"1000000"})
+    private int filmsCount;
+
+    @Param({"10", "100"})
+    private int count;
+
+    private final List<Film> films = new ArrayList<>();
+
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 1; i <= filmsCount; i++) {
+            Film film = Film.builder()
+                    .id(i)
+                    .name("Film " + i)
+                    .description("Film descr")
+                    .duration(120)
+                    .releaseDate(LocalDate.of(2022, 11, 1))
+                    .build();
+            film.getLikesCount().add(random.nextInt(10_000));
+            films.add(film);
+            popularityIndex.refresh(film);
+        }
+    }
+
+    @Benchmark
+    public List<Integer> fullSort() {
+        return films
+                .stream()
+                .sorted(filmPopularityComparator)
+                .limit(count)
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Integer> popularityIndex() {
+        return popularityIndex.getTopFilmIds(count);
+    }
+
+    @Benchmark
+    public void likeAndRefresh() {
+        Film film = films.get(ThreadLocalRandom.current().nextInt(films.size()));
+        film.getLikesCount().increment();
+        popularityIndex.refresh(film);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FilmPopularityBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
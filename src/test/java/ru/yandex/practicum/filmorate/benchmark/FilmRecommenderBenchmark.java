@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.storage.ChangeLog;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserRepository;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of keeping the co-likes up to date: a like and its removal by a user who already likes
+ * likesPerUser films, in a catalog whose co-likes have been warmed up by many such users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmRecommenderBenchmark {
+
+    private static final int FILMS_COUNT = 10_000;
+    private static final int USERS_COUNT = 1_000;
+
+    @Param({"10", "100", "1000"})
+    private int likesPerUser;
+
+    @Param({"20"})
+    private int neighborsCount;
+
+    private FilmRecommender filmRecommender;
+    private User[] users;
+
+    @Setup
+    public void setUp() {
+        filmRecommender = new FilmRecommender(new InMemoryUserRepository(ChangeLog.NONE), neighborsCount, 500);
+        Random random = new Random(42);
+        users = new User[USERS_COUNT];
+        for (int i = 0; i < USERS_COUNT; i++) {
+            users[i] = User.builder()
+                    .id(i + 1)
+                    .login("login")
+                    .email("test@domain.xxx")
+                    .birthday(LocalDate.of(1980, 1, 1))
+                    .likedFilms(new IntSet())
+                    .build();
+            for (int j = 0; j < likesPerUser; j++) {
+                // Skewed towards the films with lower ids, as likes are
+                int filmId = 1 + (int) (FILMS_COUNT * Math.pow(random.nextDouble(), 2));
+                int[] otherFilmIds = users[i].getLikedFilms().toArray();
+                if (users[i].getLikedFilms().add(filmId)) {
+                    filmRecommender.likeAdded(users[i].getId(), filmId, otherFilmIds);
+                }
+            }
+        }
+    }
+
+    // The like is taken back, so that the co-likes stay the same however long the run is
+    @Benchmark
+    public void addAndRemoveLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        User user = users[random.nextInt(USERS_COUNT)];
+        int filmId = 1 + random.nextInt(FILMS_COUNT);
+        if (!user.getLikedFilms().contains(filmId)) {
+            int[] otherFilmIds = user.getLikedFilms().toArray();
+            filmRecommender.likeAdded(user.getId(), filmId, otherFilmIds);
+            filmRecommender.likeRemoved(user.getId(), filmId, otherFilmIds);
+        }
+    }
+
+    @Benchmark
+    public int[] findSimilar() {
+        return filmRecommender.findSimilar(1 + ThreadLocalRandom.current().nextInt(FILMS_COUNT), 10);
+    }
+
+    @Benchmark
+    public int[] recommend() {
+        return filmRecommender.recommend(users[ThreadLocalRandom.current().nextInt(USERS_COUNT)], 10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FilmRecommenderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.ChangeLog;
+import ru.yandex.practicum.filmorate.storage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency percentiles over a synthetic catalog whose words follow Zipf's law, as the words of a real
+ * one do. Queries take their words uniformly from the vocabulary: a full word, two words, or a word
+ * followed by the first letters of another, as typed into a search box.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class FilmSearchBenchmark {
+
+    private static final int VOCABULARY_SIZE = 50_000;
+    private static final int DESCRIPTION_WORDS = 15;
+    private static final int QUERIES_COUNT = 10_000;
+
+    @Param({"1000000"})
+    private int filmsCount;
+
+    @Param({"word", "twoWords", "autocomplete"})
+    private String queryType;
+
+    private InMemoryFilmRepository filmRepository;
+    private String[] queries;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[VOCABULARY_SIZE];
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            vocabulary[i] = randomWord(random);
+        }
+        double[] cumulativeFrequencies = new double[VOCABULARY_SIZE];
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            sum += 1.0 / (i + 1);
+            cumulativeFrequencies[i] = sum;
+        }
+
+        filmRepository = new InMemoryFilmRepository(new FilmPopularityIndex(), new FilmSearchIndex(), ChangeLog.NONE);
+        List<Film> batch = new ArrayList<>();
+        for (int i = 0; i < filmsCount; i++) {
+            batch.add(Film.builder()
+                    .name(randomText(random, vocabulary, cumulativeFrequencies, 1 + random.nextInt(3)))
+                    .description(randomText(random, vocabulary, cumulativeFrequencies, DESCRIPTION_WORDS))
+                    .duration(120)
+                    .releaseDate(LocalDate.of(2022, 11, 1))
+                    .build());
+            if (batch.size() == 10_000) {
+                filmRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        filmRepository.saveAll(batch);
+
+        queries = new String[QUERIES_COUNT];
+        for (int i = 0; i < QUERIES_COUNT; i++) {
+            String word = vocabulary[random.nextInt(VOCABULARY_SIZE)];
+            String otherWord = vocabulary[random.nextInt(VOCABULARY_SIZE)];
+            switch (queryType) {
+                case "word":
+                    queries[i] = word;
+                    break;
+                case "twoWords":
+                    queries[i] = word + " " + otherWord;
+                    break;
+                case "autocomplete":
+                    queries[i] = word + " " + otherWord.substring(0, 3);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown query type: " + queryType);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Film> search() {
+        return filmRepository.search(queries[ThreadLocalRandom.current().nextInt(QUERIES_COUNT)], 10);
+    }
+
+    private static String randomWord(Random random) {
+        char[] word = new char[4 + random.nextInt(6)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(word);
+    }
+
+    private static String randomText(Random random, String[] vocabulary, double[] cumulativeFrequencies,
+                                     int wordsCount) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < wordsCount; i++) {
+            int index = Arrays.binarySearch(cumulativeFrequencies,
+                    random.nextDouble() * cumulativeFrequencies[cumulativeFrequencies.length - 1]);
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(vocabulary[index < 0 ? -index - 1 : index]);
+        }
+        return text.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FilmSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
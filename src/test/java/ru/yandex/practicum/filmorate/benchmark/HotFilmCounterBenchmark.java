@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.util.StripedCounter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Likes of a single premiere counted by every thread at once: one AtomicInteger against the striped
+ * counter. The read after every like is what refreshing the rating of the film costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class HotFilmCounterBenchmark {
+
+    private final AtomicInteger atomicCounter = new AtomicInteger();
+
+    private final StripedCounter stripedCounter = new StripedCounter();
+
+    @Benchmark
+    public void atomicLike() {
+        atomicCounter.incrementAndGet();
+    }
+
+    @Benchmark
+    public void stripedLike() {
+        stripedCounter.increment();
+    }
+
+    @Benchmark
+    public int atomicLikeAndRead() {
+        atomicCounter.incrementAndGet();
+        return atomicCounter.get();
+    }
+
+    @Benchmark
+    public int stripedLikeAndRead() {
+        stripedCounter.increment();
+        return stripedCounter.get();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(HotFilmCounterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
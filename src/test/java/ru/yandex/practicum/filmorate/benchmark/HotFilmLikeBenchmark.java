@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.audit.AuditLog;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BatchExecutor;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendRecommender;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.*;
+
+import javax.validation.Validation;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Likes of a single premiere by many users at once, through the like repository alone and through
+ * the service, which also moves the trending windows and the rating version. Every other film is left
+ * alone, so all the threads meet on the state of the one film.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+@Threads(8)
+public class HotFilmLikeBenchmark {
+
+    private static final int USERS_COUNT = 10_000;
+
+    private InMemoryLikeRepository likeRepository;
+    private FilmService filmService;
+    private User[] users;
+    private Film premiere;
+
+    @Setup
+    public void setUp() {
+        Logger rootLogger = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        rootLogger.detachAndStopAllAppenders();
+        FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+        BatchExecutor batchExecutor = new BatchExecutor(Validation.buildDefaultValidatorFactory().getValidator());
+        InMemoryFilmRepository filmRepository = new InMemoryFilmRepository(popularityIndex, new FilmSearchIndex(),
+                ChangeLog.NONE);
+        UserRepository userRepository = new InMemoryUserRepository(ChangeLog.NONE);
+        UserService userService = new UserService(userRepository, new InMemoryFriendshipRepository(ChangeLog.NONE),
+                batchExecutor, AuditLog.NONE, new FriendRecommender(userRepository, 1000, 10_000));
+        FilmRecommender filmRecommender = new FilmRecommender(userRepository, 20, 500);
+        likeRepository = new InMemoryLikeRepository(popularityIndex, ChangeLog.NONE, filmRecommender);
+        filmService = new FilmService(filmRepository, likeRepository, userService, batchExecutor, AuditLog.NONE,
+                filmRecommender, new TrendingFilms());
+        premiere = filmRepository.save(Film.builder()
+                .name("Premiere")
+                .description("Film descr")
+                .duration(120)
+                .releaseDate(LocalDate.of(2022, 11, 1))
+                .build());
+        List<User> newUsers = new ArrayList<>(USERS_COUNT);
+        for (int i = 1; i <= USERS_COUNT; i++) {
+            newUsers.add(User.builder()
+                    .login("login" + i)
+                    .email("user" + i + "@domain.xxx")
+                    .birthday(LocalDate.of(1980, 1, 1))
+                    .build());
+        }
+        userService.createUsers(newUsers);
+        users = userRepository.findAll().toArray(new User[0]);
+    }
+
+    // The like is taken back, so that the film stays the same however long the run is
+    @Benchmark
+    public boolean repositoryLike() {
+        User user = users[ThreadLocalRandom.current().nextInt(USERS_COUNT)];
+        likeRepository.addLike(user, premiere);
+        return likeRepository.removeLike(user, premiere);
+    }
+
+    @Benchmark
+    public Film serviceLike() {
+        int userId = users[ThreadLocalRandom.current().nextInt(USERS_COUNT)].getId();
+        filmService.addLike(userId, premiere.getId());
+        return filmService.removeLike(userId, premiere.getId());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(HotFilmLikeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
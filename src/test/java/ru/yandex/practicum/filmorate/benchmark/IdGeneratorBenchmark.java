@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.storage.IdGenerator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput (id allocation + map put) of the former synchronized boxed counter
+ * against {@link IdGenerator}, single ids and reserved blocks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGeneratorBenchmark {
+
+    private static final int BLOCK_SIZE = 64;
+    private static final int KEYS_MASK = (1 << 20) - 1;
+
+    private final Map<Integer, Object> storage = new ConcurrentHashMap<>();
+
+    private final Object value = new Object();
+
+    private final IdGenerator idGenerator = new IdGenerator();
+
+    private Integer nextId = 1;
+
+    @State(Scope.Thread)
+    public static class ReservedBlock {
+        int nextId;
+        int lastId = -1;
+    }
+
+    @Benchmark
+    public Object synchronizedInsert() {
+        return insert(getNextId());
+    }
+
+    @Benchmark
+    public Object atomicInsert() {
+        return insert(idGenerator.nextId());
+    }
+
+    @Benchmark
+    public Object reservedBlockInsert(ReservedBlock block) {
+        if (block.nextId > block.lastId) {
+            block.nextId = idGenerator.reserve(BLOCK_SIZE);
+            block.lastId = block.nextId + BLOCK_SIZE - 1;
+        }
+        return insert(block.nextId++);
+    }
+
+    private Object insert(int id) {
+        return storage.put(id & KEYS_MASK, value);
+    }
+
+    private synchronized Integer getNextId() {
+        return nextId++;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 8, 32}) {
+            new Runner(new OptionsBuilder()
+                    .include(IdGeneratorBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
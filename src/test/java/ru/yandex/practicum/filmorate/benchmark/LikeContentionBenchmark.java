@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ChangeLog;
+import ru.yandex.practicum.filmorate.storage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryLikeRepository;
+import ru.yandex.practicum.filmorate.storage.LikeListener;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Many users like and unlike the same blockbuster at once: striped like table against one global lock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class LikeContentionBenchmark {
+
+    private static final int USERS_PER_THREAD = 1_000;
+
+    private final AtomicInteger threadsCount = new AtomicInteger();
+
+    private final Object globalLock = new Object();
+
+    private final InMemoryLikeRepository likeRepository = new InMemoryLikeRepository(new FilmPopularityIndex(),
+            ChangeLog.NONE, LikeListener.NONE);
+
+    private final Film blockbuster = Film.builder()
+            .id(1)
+            .name("Blockbuster")
+            .description("Premiere")
+            .duration(120)
+            .releaseDate(LocalDate.of(2022, 11, 1))
+            .build();
+
+    @State(Scope.Thread)
+    public static class Users {
+        User[] users;
+        int next;
+
+        @Setup
+        public void setUp(LikeContentionBenchmark benchmark) {
+            int firstId = benchmark.threadsCount.getAndIncrement() * USERS_PER_THREAD + 1;
+            users = new User[USERS_PER_THREAD];
+            for (int i = 0; i < USERS_PER_THREAD; i++) {
+                users[i] = User.builder()
+                        .id(firstId + i)
+                        .login("login")
+                        .email("test@domain.xxx")
+                        .birthday(LocalDate.of(1980, 1, 1))
+                        .build();
+            }
+        }
+
+        User nextUser() {
+            User user = users[next];
+            next = (next + 1) % USERS_PER_THREAD;
+            return user;
+        }
+    }
+
+    @Benchmark
+    public boolean stripedLikeTable(Users users) {
+        User user = users.nextUser();
+        return likeRepository.addLike(user, blockbuster) && likeRepository.removeLike(user, blockbuster);
+    }
+
+    @Benchmark
+    public boolean globalLock(Users users) {
+        User user = users.nextUser();
+        synchronized (globalLock) {
+            if (!user.getLikedFilms().add(blockbuster.getId())) {
+                return false;
+            }
+            blockbuster.getLikesCount().increment();
+        }
+        synchronized (globalLock) {
+            user.getLikedFilms().remove(blockbuster.getId());
+            blockbuster.getLikesCount().decrement();
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LikeContentionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
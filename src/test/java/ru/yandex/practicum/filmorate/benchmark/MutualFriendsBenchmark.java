@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mutual friends of two users with skewed degrees: boxed HashSet copy + retainAll against IntSet.intersect.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MutualFriendsBenchmark {
+
+    private static final int USERS_COUNT = 10_000_000;
+
+    @Param({"10:10", "10:100000", "1000:100000", "100000:100000", "1000000:1000000"})
+    private String degrees;
+
+    private Set<Integer> userFriends;
+    private Set<Integer> otherUserFriends;
+
+    private IntSet userFriendsIntSet;
+    private IntSet otherUserFriendsIntSet;
+
+    @Setup
+    public void setUp() {
+        String[] parts = degrees.split(":");
+        Random random = new Random(42);
+        int[] userValues = random.ints(Integer.parseInt(parts[0]), 1, USERS_COUNT).toArray();
+        int[] otherUserValues = random.ints(Integer.parseInt(parts[1]), 1, USERS_COUNT).toArray();
+        userFriendsIntSet = IntSet.of(userValues);
+        otherUserFriendsIntSet = IntSet.of(otherUserValues);
+        userFriends = new HashSet<>();
+        for (int value : userValues) {
+            userFriends.add(value);
+        }
+        otherUserFriends = new HashSet<>();
+        for (int value : otherUserValues) {
+            otherUserFriends.add(value);
+        }
+    }
+
+    @Benchmark
+    public Set<Integer> hashSetRetainAll() {
+        Set<Integer> mutualFriends = new HashSet<>(userFriends);
+        mutualFriends.retainAll(otherUserFriends);
+        return mutualFriends;
+    }
+
+    @Benchmark
+    public int[] intSetIntersect() {
+        return userFriendsIntSet.intersect(otherUserFriendsIntSet);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MutualFriendsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import ru.yandex.practicum.filmorate.audit.AuditLog;
+import ru.yandex.practicum.filmorate.controller.EntityTags;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.controller.NdjsonStreamingWriter;
+import ru.yandex.practicum.filmorate.controller.PopularFilmsResponseCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BatchExecutor;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendRecommender;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.*;
+
+import javax.validation.Validation;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Requests per second of GET /films/popular through MockMvc with the rating serialized on every request
+ * against the cached serialized response, and the same for the response body alone, as the request
+ * handling of MockMvc takes most of the time and varies a lot. Likes are not changing during the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(3)
+public class PopularFilmsResponseBenchmark {
+
+    private static final int FILMS_COUNT = 10_000;
+    private static final int USERS_COUNT = 1_000;
+
+    @Param({"false", "true"})
+    private boolean isCacheEnabled;
+
+    @Param({"10"})
+    private int count;
+
+    private MockMvc mockMvc;
+
+    private PopularFilmsResponseCache popularFilmsResponseCache;
+
+    @Setup
+    public void setUp() {
+        Logger rootLogger = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        rootLogger.detachAndStopAllAppenders();
+        FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+        BatchExecutor batchExecutor = new BatchExecutor(Validation.buildDefaultValidatorFactory().getValidator());
+        UserRepository userRepository = new InMemoryUserRepository(ChangeLog.NONE);
+        UserService userService = new UserService(userRepository, new InMemoryFriendshipRepository(ChangeLog.NONE),
+                batchExecutor, AuditLog.NONE, new FriendRecommender(userRepository, 1000, 10_000));
+        FilmRepository filmRepository = new InMemoryFilmRepository(popularityIndex, new FilmSearchIndex(),
+                ChangeLog.NONE);
+        FilmRecommender filmRecommender = new FilmRecommender(userRepository, 20, 500);
+        FilmService filmService = new FilmService(filmRepository,
+                new InMemoryLikeRepository(popularityIndex, ChangeLog.NONE, filmRecommender), userService,
+                batchExecutor, AuditLog.NONE, filmRecommender, new TrendingFilms());
+        List<Film> films = new ArrayList<>(FILMS_COUNT);
+        for (int i = 1; i <= FILMS_COUNT; i++) {
+            films.add(Film.builder()
+                    .name("Film " + i)
+                    .description("Film descr " + i)
+                    .duration(120)
+                    .releaseDate(LocalDate.of(2022, 11, 1))
+                    .build());
+        }
+        filmService.createFilms(films);
+        List<User> users = new ArrayList<>(USERS_COUNT);
+        for (int i = 1; i <= USERS_COUNT; i++) {
+            users.add(User.builder()
+                    .login("login" + i)
+                    .email("user" + i + "@domain.xxx")
+                    .birthday(LocalDate.of(1980, 1, 1))
+                    .build());
+        }
+        userService.createUsers(users);
+        Random random = new Random(42);
+        for (int userId = 1; userId <= USERS_COUNT; userId++) {
+            for (int i = 0; i < 10; i++) {
+                filmService.addLike(userId, 1 + random.nextInt(FILMS_COUNT));
+            }
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        popularFilmsResponseCache = new PopularFilmsResponseCache(filmService, objectMapper, isCacheEnabled, 0);
+        FilmController filmController = new FilmController(filmService, new NdjsonStreamingWriter(objectMapper),
+                popularFilmsResponseCache, new EntityTags());
+        mockMvc = MockMvcBuilders.standaloneSetup(filmController).build();
+    }
+
+    @Benchmark
+    public byte[] getMostPopularFilms() throws Exception {
+        return mockMvc.perform(get("/films/popular?count={count}", count))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+    }
+
+    @Benchmark
+    public byte[] getMostPopularFilmsBody() {
+        return popularFilmsResponseCache.getMostPopularFilms(count);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PopularFilmsResponseBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
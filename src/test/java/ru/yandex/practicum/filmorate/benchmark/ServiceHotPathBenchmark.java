@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.audit.AuditLog;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BatchExecutor;
+import ru.yandex.practicum.filmorate.service.FilmRecommender;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendRecommender;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.*;
+
+import javax.validation.Validation;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service and repository calls behind the busiest endpoints over the in-memory storage, with every user
+ * having a few dozen friends and liked films. Run through the benchmark profile, which sets the thread
+ * count and writes the results to JSON, e.g. {@code mvn -P benchmark verify -Djmh.threads=4}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceHotPathBenchmark {
+
+    private static final int FRIENDS_PER_USER = 20;
+    private static final int LIKES_PER_USER = 10;
+
+    @Param({"1000", "100000"})
+    private int usersCount;
+
+    @Param({"10000"})
+    private int filmsCount;
+
+    private FilmService filmService;
+    private UserService userService;
+    private InMemoryFilmRepository filmRepository;
+
+    @Setup
+    public void setUp() {
+        Logger rootLogger = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        rootLogger.detachAndStopAllAppenders();
+        FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+        BatchExecutor batchExecutor = new BatchExecutor(Validation.buildDefaultValidatorFactory().getValidator());
+        filmRepository = new InMemoryFilmRepository(popularityIndex, new FilmSearchIndex(), ChangeLog.NONE);
+        UserRepository userRepository = new InMemoryUserRepository(ChangeLog.NONE);
+        userService = new UserService(userRepository, new InMemoryFriendshipRepository(ChangeLog.NONE),
+                batchExecutor, AuditLog.NONE, new FriendRecommender(userRepository, 1000, 10_000));
+        FilmRecommender filmRecommender = new FilmRecommender(userRepository, 20, 500);
+        filmService = new FilmService(filmRepository,
+                new InMemoryLikeRepository(popularityIndex, ChangeLog.NONE, filmRecommender), userService,
+                batchExecutor, AuditLog.NONE, filmRecommender, new TrendingFilms());
+        List<Film> films = new ArrayList<>(filmsCount);
+        for (int i = 1; i <= filmsCount; i++) {
+            films.add(film(null));
+        }
+        filmService.createFilms(films);
+        List<User> users = new ArrayList<>(usersCount);
+        for (int i = 1; i <= usersCount; i++) {
+            users.add(User.builder()
+                    .login("login" + i)
+                    .email("user" + i + "@domain.xxx")
+                    .birthday(LocalDate.of(1980, 1, 1))
+                    .build());
+        }
+        userService.createUsers(users);
+        Random random = new Random(42);
+        for (int userId = 1; userId <= usersCount; userId++) {
+            for (int i = 0; i < FRIENDS_PER_USER / 2; i++) {
+                int friendId = 1 + random.nextInt(usersCount);
+                if (friendId != userId) {
+                    userService.addFriend(friendId, userId);
+                }
+            }
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                filmService.addLike(userId, 1 + random.nextInt(filmsCount));
+            }
+        }
+    }
+
+    // The like is taken back, so that the dataset stays the same however long the run is
+    @Benchmark
+    public Film addLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int userId = 1 + random.nextInt(usersCount);
+        int filmId = 1 + random.nextInt(filmsCount);
+        filmService.addLike(userId, filmId);
+        return filmService.removeLike(userId, filmId);
+    }
+
+    @Benchmark
+    public Iterable<Film> getMostPopularFilms() {
+        return filmService.getMostPopularFilms(10);
+    }
+
+    @Benchmark
+    public Iterable<User> getMutualFriends() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return userService.getMutualFriends(1 + random.nextInt(usersCount), 1 + random.nextInt(usersCount));
+    }
+
+    @Benchmark
+    public Iterable<User> getRecommendedFriends() {
+        return userService.getRecommendedFriends(1 + ThreadLocalRandom.current().nextInt(usersCount), 10);
+    }
+
+    @Benchmark
+    public Iterable<User> getUserFriends() {
+        return userService.getUserFriends(1 + ThreadLocalRandom.current().nextInt(usersCount));
+    }
+
+    // Films saved during an iteration are deleted after it, so that the catalog does not grow over the run
+    @TearDown(Level.Iteration)
+    public void deleteSavedFilms() {
+        for (Film film : new ArrayList<>(filmRepository.findAllAfter(filmsCount, Integer.MAX_VALUE))) {
+            filmRepository.delete(film);
+        }
+    }
+
+    @Benchmark
+    public Film saveFilm() {
+        return filmRepository.save(film(null));
+    }
+
+    @Benchmark
+    public Film updateFilm() {
+        return filmRepository.update(film(1 + ThreadLocalRandom.current().nextInt(filmsCount)));
+    }
+
+    private static Film film(Integer id) {
+        return Film.builder()
+                .id(id)
+                .name("Film")
+                .description("Film descr")
+                .duration(120)
+                .releaseDate(LocalDate.of(2022, 11, 1))
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ServiceHotPathBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
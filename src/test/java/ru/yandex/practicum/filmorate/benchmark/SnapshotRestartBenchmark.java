@@ -0,0 +1,161 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to rebuild the repositories on startup: replaying the whole write-ahead log
+ * versus loading a snapshot taken after the same changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SnapshotRestartBenchmark {
+
+    private static final int LIKES_PER_USER = 10;
+    private static final int FRIENDS_PER_USER = 5;
+
+    @Param({"100000"})
+    private int usersCount;
+
+    private Path logDirectory;
+
+    private Path snapshotDirectory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logDirectory = Files.createTempDirectory("restart-benchmark-log");
+        snapshotDirectory = Files.createTempDirectory("restart-benchmark-snapshot");
+        populate(logDirectory, false);
+        populate(snapshotDirectory, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        delete(logDirectory);
+        delete(snapshotDirectory);
+    }
+
+    @Benchmark
+    public int restartFromLog() throws IOException {
+        return restart(logDirectory);
+    }
+
+    @Benchmark
+    public int restartFromSnapshot() throws IOException {
+        return restart(snapshotDirectory);
+    }
+
+    private int restart(Path directory) throws IOException {
+        try (WriteAheadLog writeAheadLog = openLog(directory)) {
+            Repositories repositories = new Repositories(writeAheadLog, new SnapshotStore(getSnapshotPath(directory)));
+            repositories.loader.load();
+            return repositories.userRepository.findAll().size();
+        }
+    }
+
+    private void populate(Path directory, boolean isSnapshotTaken) throws IOException {
+        Random random = new Random(42);
+        int filmsCount = usersCount / 10;
+        try (WriteAheadLog writeAheadLog = openLog(directory)) {
+            Repositories repositories = new Repositories(writeAheadLog, new SnapshotStore(getSnapshotPath(directory)));
+            repositories.loader.load();
+            List<Film> films = new ArrayList<>(filmsCount);
+            for (int i = 0; i < filmsCount; i++) {
+                films.add(Film.builder()
+                        .name("Film " + i)
+                        .description("Film description " + i)
+                        .duration(90 + i % 60)
+                        .releaseDate(LocalDate.of(2000, 1, 1).plusDays(i % 8000))
+                        .build());
+            }
+            films = repositories.filmRepository.saveAll(films);
+            List<User> users = new ArrayList<>(usersCount);
+            for (int i = 0; i < usersCount; i++) {
+                users.add(User.builder()
+                        .login("login" + i)
+                        .name("User " + i)
+                        .email("user" + i + "@domain.xxx")
+                        .birthday(LocalDate.of(1980, 1, 1).plusDays(i % 10000))
+                        .build());
+            }
+            users = repositories.userRepository.saveAll(users);
+            for (User user : users) {
+                for (int i = 0; i < LIKES_PER_USER; i++) {
+                    repositories.likeRepository.addLike(user, films.get(random.nextInt(filmsCount)));
+                }
+                for (int i = 0; i < FRIENDS_PER_USER; i++) {
+                    User friend = users.get(random.nextInt(usersCount));
+                    if (friend != user) {
+                        repositories.friendshipRepository.addFriendship(user, friend);
+                    }
+                }
+            }
+            if (isSnapshotTaken) {
+                repositories.snapshotScheduler.takeSnapshot();
+            }
+        }
+    }
+
+    private static WriteAheadLog openLog(Path directory) throws IOException {
+        return new WriteAheadLog(directory.resolve("filmorate.wal"), 10_000, 10, true);
+    }
+
+    private static Path getSnapshotPath(Path directory) {
+        return directory.resolve("filmorate.snapshot");
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static class Repositories {
+
+        final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+        final InMemoryFilmRepository filmRepository;
+        final InMemoryUserRepository userRepository;
+        final InMemoryLikeRepository likeRepository;
+        final InMemoryFriendshipRepository friendshipRepository;
+        final WriteAheadLogLoader loader;
+        final SnapshotScheduler snapshotScheduler;
+
+        Repositories(WriteAheadLog writeAheadLog, SnapshotStore snapshotStore) {
+            filmRepository = new InMemoryFilmRepository(popularityIndex, new FilmSearchIndex(), writeAheadLog);
+            userRepository = new InMemoryUserRepository(writeAheadLog);
+            likeRepository = new InMemoryLikeRepository(popularityIndex, writeAheadLog, LikeListener.NONE);
+            friendshipRepository = new InMemoryFriendshipRepository(writeAheadLog);
+            loader = new WriteAheadLogLoader(writeAheadLog, snapshotStore, filmRepository, userRepository,
+                    likeRepository, friendshipRepository);
+            snapshotScheduler = new SnapshotScheduler(writeAheadLog, snapshotStore, filmRepository, userRepository);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SnapshotRestartBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.ChangeLog;
+import ru.yandex.practicum.filmorate.storage.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a change seen by a writer with the write-ahead log forcing group commits, waiting for the fsync
+ * covering the change or acknowledged before it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class WriteAheadLogBenchmark {
+
+    @Param({"100", "1000"})
+    private int fsyncBatchSize;
+
+    @Param({"10"})
+    private long fsyncIntervalMillis;
+
+    @Param({"true", "false"})
+    private boolean awaitFsync;
+
+    private final Film film = Film.builder()
+            .id(1)
+            .name("Film test name")
+            .description("Film test descr")
+            .duration(120)
+            .releaseDate(LocalDate.of(2022, 11, 1))
+            .build();
+
+    private Path directory;
+
+    private WriteAheadLog writeAheadLog;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("wal-benchmark");
+        writeAheadLog = new WriteAheadLog(directory.resolve("filmorate.wal"), fsyncBatchSize, fsyncIntervalMillis,
+                awaitFsync);
+        writeAheadLog.replay(ChangeLog.NONE, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writeAheadLog.close();
+        Files.delete(directory.resolve("filmorate.wal"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void likeAdded() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        writeAheadLog.likeAdded(random.nextInt(1, 1_000_000), random.nextInt(1, 100_000));
+        writeAheadLog.awaitPersisted();
+    }
+
+    @Benchmark
+    public void filmUpdated() {
+        writeAheadLog.filmUpdated(film);
+        writeAheadLog.awaitPersisted();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WriteAheadLogBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
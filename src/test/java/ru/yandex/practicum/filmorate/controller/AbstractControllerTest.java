@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.ComponentScan;
@@ -22,7 +23,9 @@ abstract class AbstractControllerTest {
     protected final static String ERROR_MES_TEMPLATE
             = "Validation exception [class: '%s', field: '%s', mes: '%s']";
 
-    protected final MockMvc mockMvc;
+    // Re-injected after @DirtiesContext(BEFORE_METHOD) recreates the context, unlike the constructor argument
+    @Autowired
+    protected MockMvc mockMvc;
 
     public AbstractControllerTest(MockMvc mockMvc) {
         this.mockMvc = mockMvc;
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Handlers run as async tasks: every request but a rejected one is answered on the async dispatch.
+ */
+@TestPropertySource(properties = "filmorate.web.async.enabled=true")
+public class AsyncControllerTest extends AbstractControllerTest {
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    public AsyncControllerTest(MockMvc mockMvc) {
+        super(mockMvc);
+    }
+
+    @Test
+    @DisplayName("Пул Spring Boot остается основным рядом с пулом запросов")
+    void applicationTaskExecutorTest() {
+        AsyncTaskExecutor applicationTaskExecutor = context.getBean(
+                TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, AsyncTaskExecutor.class);
+        assertSame(applicationTaskExecutor, context.getBean(AsyncTaskExecutor.class),
+                "Spring Boot executor is not the primary one.");
+        assertNotSame(applicationTaskExecutor, context.getBean("requestExecutor"),
+                "Requests run on the Spring Boot executor.");
+    }
+
+    @Test
+    @DisplayName("Асинхронное создание фильма, лайк и условный запрос")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void asyncLikeTest() throws Exception {
+        performAsync(post("/users")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(user)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+        performAsync(post("/films")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(film)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+        performAsync(put("/films/{id}/like/{userId}", 1, 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likesCount").value(1));
+
+        String eTag = performAsync(get("/films/{id}", 1))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+        performAsync(get("/films/{id}", 1).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("Ошибки асинхронных запросов")
+    void asyncErrorsTest() throws Exception {
+        performAsync(get("/users/{id}", 9999))
+                .andExpect(status().isNotFound());
+        // Arguments are validated before the handler is handed over to the executor
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(serializeObject(film.withName(""))))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isBadRequest());
+    }
+
+    private ResultActions performAsync(RequestBuilder builder) throws Exception {
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
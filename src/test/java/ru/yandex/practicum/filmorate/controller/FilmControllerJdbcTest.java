@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Same scenarios against the JDBC repositories on a fresh embedded H2 database per context.
+ */
+@ActiveProfiles("jdbc")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:${random.uuid}")
+public class FilmControllerJdbcTest extends FilmControllerTest {
+
+    @Autowired
+    public FilmControllerJdbcTest(MockMvc mockMvc) {
+        super(mockMvc);
+    }
+}
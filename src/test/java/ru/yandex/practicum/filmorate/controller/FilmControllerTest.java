@@ -13,6 +13,8 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.MutationAction;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
@@ -555,4 +557,368 @@ public class FilmControllerTest extends AbstractControllerTest {
                     .andExpect(jsonPath("$.likesCount").value(0));
         }
     }
+
+    @Test
+    @DisplayName("Постраничное получение списка фильмов")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void getFilmsPageTest() throws Exception {
+        MockHttpServletRequestBuilder builder = post("/films")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(film));
+        // Creating 5 films
+        for (int i = 1; i <= 5; i++) {
+            mockMvc.perform(builder).andExpect(status().isOk());
+        }
+        builder = get("/films?limit={limit}", 2);
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(jsonPath("$.size()").value(2))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(2));
+        builder = get("/films?after={after}&limit={limit}", 2, 2);
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(2))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(4));
+        builder = get("/films?after={after}", 4);
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].id").value(5));
+        builder = get("/films?limit={limit}", 0);
+        mockMvc.perform(builder).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Потоковая выгрузка всех фильмов в формате NDJSON")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void streamAllFilmsTest() throws Exception {
+        MockHttpServletRequestBuilder builder = post("/films")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(film));
+        // Creating 3 films
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(builder).andExpect(status().isOk());
+        }
+        builder = get("/films").accept(MediaType.APPLICATION_NDJSON);
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(3, lines.length, "Server hasn't stream all films.");
+        for (String line : lines) {
+            assertEquals(film.getName(), getMapper().readValue(line, Film.class).getName(),
+                    "Server has streamed wrong film.");
+        }
+    }
+
+    @Test
+    @DisplayName("Пакетное создание фильмов с невалидными элементами")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void createFilmsBatchTest() throws Exception {
+        List<Film> films = Arrays.asList(
+                film.withName("First"),
+                film.withReleaseDate(LocalDate.of(1830, 10, 1)),
+                null,
+                film.withName("Second"));
+        MockHttpServletRequestBuilder builder = post("/films/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(films));
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(jsonPath("$.size()").value(4))
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[0].entity.id").value(1))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].status").value("INVALID"))
+                .andExpect(jsonPath("$[1].reasons[0]")
+                        .value(String.format(ERROR_MES_TEMPLATE, "film", "releaseDate", "must be after 28.12.1895")))
+                .andExpect(jsonPath("$[2].status").value("INVALID"))
+                .andExpect(jsonPath("$[3].status").value("CREATED"))
+                .andExpect(jsonPath("$[3].entity.id").value(2))
+                .andExpect(jsonPath("$[3].entity.name").value("Second"));
+        builder = get("/films");
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(2));
+    }
+
+    @Test
+    @DisplayName("Пакетное изменение лайков с отчетом по каждой паре")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void applyLikesBatchTest() throws Exception {
+        MockHttpServletRequestBuilder builder = post("/films/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(List.of(film, film)));
+        // Creating 2 films
+        mockMvc.perform(builder).andExpect(status().isOk());
+        builder = post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(List.of(user, user)));
+        // Creating 2 users
+        mockMvc.perform(builder).andExpect(status().isOk());
+        List<LikeMutation> mutations = List.of(
+                new LikeMutation(1, 2, MutationAction.ADD),
+                new LikeMutation(2, 2, MutationAction.ADD),
+                new LikeMutation(2, 2, MutationAction.ADD),
+                new LikeMutation(1, 1, MutationAction.ADD),
+                new LikeMutation(1, 1, MutationAction.REMOVE),
+                new LikeMutation(9999, 1, MutationAction.ADD),
+                new LikeMutation(1, null, MutationAction.ADD));
+        builder = post("/films/likes/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(mutations));
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(7))
+                .andExpect(jsonPath("$[0].status").value("APPLIED"))
+                .andExpect(jsonPath("$[1].status").value("APPLIED"))
+                .andExpect(jsonPath("$[2].status").value("UNCHANGED"))
+                .andExpect(jsonPath("$[3].status").value("APPLIED"))
+                .andExpect(jsonPath("$[4].status").value("APPLIED"))
+                .andExpect(jsonPath("$[5].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$[5].reasons[0]").value("User with id=9999 does not exist."))
+                .andExpect(jsonPath("$[6].status").value("INVALID"));
+        builder = get("/films/popular?count={count}", 1);
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].likesCount").value(2));
+        builder = get("/films/{id}", 1);
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likesCount").value(0));
+    }
+
+    @Test
+    @DisplayName("Обновление закэшированного рейтинга после лайка и изменения фильма")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void popularFilmsCacheInvalidationTest() throws Exception {
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(serializeObject(user)))
+                .andExpect(status().isOk());
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(serializeObject(film)))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/films/popular?count={count}", 2))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(jsonPath("$[0].id").value(1));
+        mockMvc.perform(put("/films/{id}/like/{userId}", 2, 1))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular?count={count}", 2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].likesCount").value(1));
+        mockMvc.perform(put("/films")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(serializeObject(film.withId(2).withName("Renamed"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular?count={count}", 2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Renamed"));
+        mockMvc.perform(get("/films/popular?count={count}", -1))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Условный запрос фильма по ETag")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void conditionalGetFilmTest() throws Exception {
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(serializeObject(user)))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(serializeObject(film)))
+                .andExpect(status().isOk());
+        String eTag = mockMvc.perform(get("/films/{id}", 1))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+        mockMvc.perform(get("/films/{id}", 1).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", 1, 1))
+                .andExpect(status().isOk());
+        String likedETag = mockMvc.perform(get("/films/{id}", 1).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likesCount").value(1))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        mockMvc.perform(put("/films")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(serializeObject(film.withId(1).withName("Renamed"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/{id}", 1).header("If-None-Match", likedETag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Renamed"));
+    }
+
+    @Test
+    @DisplayName("Похожие фильмы и рекомендации фильмов по совместным лайкам")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void similarAndRecommendedFilmsTest() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(serializeObject(user.withLogin("login" + i))))
+                    .andExpect(status().isOk());
+        }
+        for (int i = 1; i <= 4; i++) {
+            mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(serializeObject(film.withName("Film " + i))))
+                    .andExpect(status().isOk());
+        }
+        int[][] likes = {{1, 1}, {1, 2}, {1, 3}, {2, 1}, {2, 2}, {3, 1}, {3, 4}};
+        for (int[] like : likes) {
+            mockMvc.perform(put("/films/{id}/like/{userId}", like[1], like[0]))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/films/{id}/similar", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(3))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[1].id").value(3))
+                .andExpect(jsonPath("$[2].id").value(4));
+        mockMvc.perform(get("/users/{id}/film-recommendations", 2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(2))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(4));
+
+        mockMvc.perform(delete("/films/{id}/like/{userId}", 2, 1))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/{id}/similar?count={count}", 2, 5))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].id").value(1));
+        mockMvc.perform(get("/users/{id}/film-recommendations", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(2))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[1].id").value(4));
+        // Each like of a batch is paired with the films the user liked before it, not after the whole batch
+        mockMvc.perform(post("/films/likes/batch")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(serializeObject(List.of(new LikeMutation(2, 3, MutationAction.ADD),
+                                new LikeMutation(2, 4, MutationAction.ADD)))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/{id}/similar", 3))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(3))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(2))
+                .andExpect(jsonPath("$[2].id").value(4));
+        mockMvc.perform(get("/films/{id}/similar", 9999))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/films/{id}/similar?count={count}", 1, 0))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users/{id}/film-recommendations?count={count}", 1, -1))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Популярные фильмы за окно времени")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void trendingFilmsTest() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(serializeObject(user.withLogin("login" + i))))
+                    .andExpect(status().isOk());
+        }
+        for (int i = 1; i <= 4; i++) {
+            mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(serializeObject(film.withName("Film " + i))))
+                    .andExpect(status().isOk());
+        }
+        int[][] likes = {{1, 3}, {2, 3}, {3, 3}, {1, 2}, {2, 2}, {1, 4}};
+        for (int[] like : likes) {
+            mockMvc.perform(put("/films/{id}/like/{userId}", like[1], like[0]))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(delete("/films/{id}/like/{userId}", 4, 1))
+                .andExpect(status().isOk());
+        for (String window : List.of("1h", "24h", "7d")) {
+            mockMvc.perform(get("/films/popular?window={window}", window))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.size()").value(2))
+                    .andExpect(jsonPath("$[0].id").value(3))
+                    .andExpect(jsonPath("$[1].id").value(2));
+        }
+        mockMvc.perform(get("/films/popular?window={window}&count={count}", "1h", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3));
+        mockMvc.perform(get("/films/popular?window={window}", "1y"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular?window={window}&count={count}", "1h", 0))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Поиск фильмов по названию и описанию")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void searchFilmsTest() throws Exception {
+        String[][] films = {
+                {"Star Wars", "Space opera"},
+                {"Star Trek", "Space travel"},
+                {"Wall-E", "Robot left on Earth"}
+        };
+        for (String[] nameAndDescription : films) {
+            mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(serializeObject(film
+                                    .withName(nameAndDescription[0])
+                                    .withDescription(nameAndDescription[1]))))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/films/search?q={query}", "star"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(2));
+        mockMvc.perform(get("/films/search?q={query}", "Space OP"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].id").value(1));
+        mockMvc.perform(get("/films/search?q={query}&count={count}", "spa", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1));
+        mockMvc.perform(get("/films/search?q={query}", "robot earth"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].name").value("Wall-E"));
+
+        mockMvc.perform(put("/films")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(serializeObject(film.withId(3).withName("Wall-E").withDescription("Robot in space"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/search?q={query}", "earth"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(0));
+        mockMvc.perform(get("/films/search?q={query}", "space"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(3));
+        mockMvc.perform(get("/films/search?q={query}&count={count}", "space", 0))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -9,11 +9,19 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.yandex.practicum.filmorate.model.FriendshipMutation;
+import ru.yandex.practicum.filmorate.model.MutationAction;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.in;
@@ -282,6 +290,45 @@ public class UserControllerTest extends AbstractControllerTest {
         mockMvc.perform(builder).andExpect(status().isInternalServerError());
     }
 
+    @Test
+    @DisplayName("Пользователи одновременно добавляют друг друга в друзья")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void concurrentMutualFriendRequestsTest() throws Exception {
+        int pairsCount = 20;
+        MockHttpServletRequestBuilder builder = post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(Collections.nCopies(2 * pairsCount, user)));
+        mockMvc.perform(builder).andExpect(status().isOk());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> statuses = new ArrayList<>();
+        for (int i = 1; i <= pairsCount; i++) {
+            int userId = 2 * i - 1;
+            int friendId = 2 * i;
+            for (int[] request : new int[][]{{userId, friendId}, {friendId, userId}}) {
+                statuses.add(executor.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(put("/users/{id}/friends/{friendId}", request[0], request[1]))
+                            .andReturn()
+                            .getResponse()
+                            .getStatus();
+                }));
+            }
+        }
+        start.countDown();
+        for (Future<Integer> status : statuses) {
+            assertEquals(200, status.get(), "Concurrent friend request has failed.");
+        }
+        executor.shutdown();
+        for (int userId = 1; userId <= 2 * pairsCount; userId++) {
+            int friendId = userId % 2 == 1 ? userId + 1 : userId - 1;
+            mockMvc.perform(get("/users/{id}/friends", userId))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.size()").value(1))
+                    .andExpect(jsonPath("$[0].id").value(friendId));
+        }
+    }
+
     @Test
     @DisplayName("Существующий пользователь удаляет сущ. друга")
     void ExistingUserRemovesExistingFriendTest() throws Exception {
@@ -478,4 +525,243 @@ public class UserControllerTest extends AbstractControllerTest {
                 .andExpect(jsonPath("$.id").value(1))
                 .andExpect(jsonPath("$.likedFilms.size()").value(10));
     }
+
+    @Test
+    @DisplayName("Постраничное получение списка пользователей")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void getUsersPageTest() throws Exception {
+        MockHttpServletRequestBuilder builder = post("/users")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(user));
+        // Creating 3 users
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(builder).andExpect(status().isOk());
+        }
+        builder = get("/users?after={after}&limit={limit}", 1, 5);
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(jsonPath("$.size()").value(2))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[1].id").value(3));
+        builder = get("/users?limit={limit}", -1);
+        mockMvc.perform(builder).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Потоковая выгрузка всех пользователей в формате NDJSON")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void streamAllUsersTest() throws Exception {
+        MockHttpServletRequestBuilder builder = post("/users")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(user));
+        // Creating 3 users
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(builder).andExpect(status().isOk());
+        }
+        builder = get("/users").accept(MediaType.APPLICATION_NDJSON);
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(3, lines.length, "Server hasn't stream all users.");
+        for (int i = 0; i < lines.length; i++) {
+            User streamedUser = getMapper().readValue(lines[i], User.class);
+            assertEquals(i + 1, streamedUser.getId(), "Server has streamed users out of order.");
+            assertEquals(user.getLogin(), streamedUser.getLogin(), "Server has streamed wrong user.");
+        }
+    }
+
+    @Test
+    @DisplayName("Пакетное обновление существующих и несуществующих пользователей")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void updateUsersBatchTest() throws Exception {
+        MockHttpServletRequestBuilder builder = post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(List.of(user, user)));
+        // Creating 2 users
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].entity.id").value(1))
+                .andExpect(jsonPath("$[1].entity.id").value(2));
+        List<User> users = List.of(
+                user.withId(2).withName(""),
+                user.withId(9999),
+                user.withId(1).withName("Updated username"));
+        builder = put("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(users));
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(3))
+                .andExpect(jsonPath("$[0].status").value("UPDATED"))
+                .andExpect(jsonPath("$[0].entity.name").value(user.getLogin()))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$[1].reasons[0]").value("User with id=9999 does not exist."))
+                .andExpect(jsonPath("$[2].status").value("UPDATED"));
+        builder = get("/users/{id}", 1);
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Updated username"));
+    }
+
+    @Test
+    @DisplayName("Пакетное изменение дружбы с отчетом по каждой паре")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void applyFriendshipsBatchTest() throws Exception {
+        MockHttpServletRequestBuilder builder = post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(List.of(user, user, user)));
+        // Creating 3 users
+        mockMvc.perform(builder).andExpect(status().isOk());
+        List<FriendshipMutation> mutations = List.of(
+                new FriendshipMutation(3, 1, MutationAction.ADD),
+                new FriendshipMutation(1, 2, MutationAction.ADD),
+                new FriendshipMutation(2, 1, MutationAction.ADD),
+                new FriendshipMutation(2, 3, MutationAction.ADD),
+                new FriendshipMutation(3, 2, MutationAction.REMOVE),
+                new FriendshipMutation(1, 1, MutationAction.ADD),
+                new FriendshipMutation(1, 9999, MutationAction.REMOVE));
+        builder = post("/users/friends/batch")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(serializeObject(mutations));
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(7))
+                .andExpect(jsonPath("$[0].status").value("APPLIED"))
+                .andExpect(jsonPath("$[1].status").value("APPLIED"))
+                .andExpect(jsonPath("$[2].status").value("UNCHANGED"))
+                .andExpect(jsonPath("$[3].status").value("APPLIED"))
+                .andExpect(jsonPath("$[4].status").value("APPLIED"))
+                .andExpect(jsonPath("$[5].status").value("INVALID"))
+                .andExpect(jsonPath("$[5].reasons[0]").value(String.format(ERROR_MES_TEMPLATE,
+                        "friendshipMutation", "selfFriendship", "User must not be friend of himself.")))
+                .andExpect(jsonPath("$[6].status").value("NOT_FOUND"))
+                .andExpect(jsonPath("$[6].reasons[0]").value("User with id=9999 does not exist."));
+        builder = get("/users/{id}/friends", 1);
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(2))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[1].id").value(3));
+        builder = get("/users/{id}/friends", 2);
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1));
+    }
+
+    @Test
+    @DisplayName("Условный запрос списка друзей по ETag")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void conditionalGetFriendsTest() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(serializeObject(user.withLogin("login" + i))))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", 1, 2))
+                .andExpect(status().isOk());
+        String eTag = mockMvc.perform(get("/users/{id}/friends", 1))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+        mockMvc.perform(get("/users/{id}/friends", 1).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
+        // A renamed friend changes the list, though the friendships of the user stay the same
+        mockMvc.perform(put("/users")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(serializeObject(user.withId(2).withName("Renamed"))))
+                .andExpect(status().isOk());
+        String renamedETag = mockMvc.perform(get("/users/{id}/friends", 1).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Renamed"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", 1, 3))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/{id}/friends", 1).header("If-None-Match", renamedETag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(2));
+    }
+
+    @Test
+    @DisplayName("Рекомендации друзей друзей по числу общих друзей")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void recommendedFriendsTest() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(serializeObject(user.withLogin("login" + i))))
+                    .andExpect(status().isOk());
+        }
+        int[][] friendships = {{1, 2}, {1, 3}, {2, 4}, {3, 4}, {2, 5}};
+        for (int[] friendship : friendships) {
+            mockMvc.perform(put("/users/{id}/friends/{friendId}", friendship[0], friendship[1]))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/users/{id}/recommendations", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(2))
+                .andExpect(jsonPath("$[0].id").value(4))
+                .andExpect(jsonPath("$[1].id").value(5));
+        mockMvc.perform(get("/users/{id}/recommendations?count={count}", 1, 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].id").value(4));
+        mockMvc.perform(get("/users/{id}/recommendations?count={count}", 1, 0))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users/{id}/recommendations", 5))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(2))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(4));
+
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", 1, 4))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/{id}/recommendations", 1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].id").value(5));
+        // A new friend of a friend changes the ranking, though the friends of the user stay the same
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", 2, 3))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/{id}/recommendations", 5))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(3))
+                .andExpect(jsonPath("$[1].id").value(3));
+        mockMvc.perform(delete("/users/{id}/friends/{friendId}", 2, 5))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/{id}/recommendations", 5))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", empty()));
+        mockMvc.perform(get("/users/{id}/recommendations", 9999))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Задержки вызовов сервиса и размеры хранилища в actuator")
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.BEFORE_METHOD)
+    void actuatorMetricsTest() throws Exception {
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(serializeObject(user)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/latencies"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['filmorate.service']['UserService.createUser'].count").value(1))
+                .andExpect(jsonPath("$['filmorate.service']['UserService.createUser'].p99").exists());
+        mockMvc.perform(get("/actuator/metrics/{name}", "filmorate.users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").value(1.0));
+    }
 }
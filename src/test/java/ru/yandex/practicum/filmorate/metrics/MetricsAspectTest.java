@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.audit.AuditLog;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BatchExecutor;
+import ru.yandex.practicum.filmorate.service.FriendRecommender;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.*;
+
+import javax.validation.Validation;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MetricsAspect metricsAspect = new MetricsAspect(meterRegistry);
+
+    private final UserRepository userRepository = proxy(new InMemoryUserRepository(ChangeLog.NONE));
+
+    private final FriendshipRepository friendshipRepository = proxy(new InMemoryFriendshipRepository(ChangeLog.NONE));
+
+    // Gauges hold their repositories weakly, the test keeps them reachable
+    private final FilmRepository filmRepository = proxy(new InMemoryFilmRepository(new FilmPopularityIndex(),
+            new FilmSearchIndex(), ChangeLog.NONE));
+
+    private final LikeRepository likeRepository = proxy(new InMemoryLikeRepository(new FilmPopularityIndex(),
+            ChangeLog.NONE, LikeListener.NONE));
+
+    private final UserService userService = proxy(new UserService(userRepository, friendshipRepository,
+            new BatchExecutor(Validation.buildDefaultValidatorFactory().getValidator()), AuditLog.NONE,
+            new FriendRecommender(userRepository, 1000, 10_000)));
+
+    private final User user = User.builder()
+            .login("login")
+            .name("username")
+            .email("test@domain.xxx")
+            .birthday(LocalDate.of(1980, 1, 1))
+            .build();
+
+    @Test
+    @DisplayName("Таймеры сервисов и репозиториев, размер пакета и задержки в actuator")
+    void serviceAndRepositoryTimersTest() {
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder().percentiles(0.5, 0.99).build().merge(config);
+            }
+        });
+        userService.createUsers(List.of(user, user.withLogin("login2"), user.withLogin("login3")));
+        userService.createUser(user.withLogin("login4"));
+        userService.createUser(user.withLogin("login5"));
+        assertThrows(UserNotFoundException.class, () -> userService.getUserById(9999));
+
+        assertEquals(2, getTimer(MetricsAspect.SERVICE_TIMER, "UserService", "createUser", "none").count(),
+                "Wrong count of service calls.");
+        assertEquals(1, getTimer(MetricsAspect.SERVICE_TIMER, "UserService", "getUserById",
+                "UserNotFoundException").count(), "Failed call was not recorded.");
+        assertEquals(2, getTimer(MetricsAspect.REPOSITORY_TIMER, "InMemoryUserRepository", "save", "none").count(),
+                "Wrong count of repository calls.");
+        assertEquals(1, getTimer(MetricsAspect.REPOSITORY_TIMER, "InMemoryUserRepository", "saveAll", "none")
+                .count(), "Batch repository call was not recorded.");
+        assertEquals(3, meterRegistry.get(MetricsAspect.BATCH_SIZE_SUMMARY)
+                .tags("class", "UserService", "method", "createUsers")
+                .summary()
+                .totalAmount(), "Wrong batch size.");
+
+        Map<String, Number> latencies = new LatencyEndpoint(meterRegistry)
+                .latencies()
+                .get(MetricsAspect.SERVICE_TIMER)
+                .get("UserService.createUser");
+        assertEquals(2L, latencies.get("count"), "Wrong count of service calls.");
+        assertTrue(latencies.containsKey("p50") && latencies.containsKey("p99"), "Percentiles are missing.");
+    }
+
+    @Test
+    @DisplayName("Размеры хранилища")
+    void storageGaugesTest() {
+        new StorageMetrics(filmRepository, userRepository, likeRepository, friendshipRepository).bindTo(meterRegistry);
+        for (int i = 1; i <= 3; i++) {
+            userService.createUser(user.withLogin("login" + i));
+        }
+        userService.addFriend(2, 1);
+        userService.addFriend(3, 1);
+        userService.removeFriend(3, 1);
+
+        assertEquals(0, meterRegistry.get("filmorate.films").gauge().value(), "Wrong films count.");
+        assertEquals(3, meterRegistry.get("filmorate.users").gauge().value(), "Wrong users count.");
+        assertEquals(1, meterRegistry.get("filmorate.friendships").gauge().value(), "Wrong friendships count.");
+        assertEquals(0, meterRegistry.get("filmorate.likes").gauge().value(), "Wrong likes count.");
+    }
+
+    private Timer getTimer(String name, String className, String method, String exception) {
+        return meterRegistry.get(name)
+                .tags("class", className, "method", method, "exception", exception)
+                .timer();
+    }
+
+    private <T> T proxy(T target) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(metricsAspect);
+        return proxyFactory.getProxy();
+    }
+}
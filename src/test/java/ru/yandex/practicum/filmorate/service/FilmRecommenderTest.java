@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.MutationAction;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.ChangeLog;
+import ru.yandex.practicum.filmorate.storage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.InMemoryLikeRepository;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class FilmRecommenderTest {
+
+    private static final int THREADS_COUNT = 8;
+    private static final int ITERATIONS_COUNT = 2_000;
+    private static final int USERS_COUNT = 20;
+    private static final int FILMS_COUNT = 15;
+    private static final int BATCH_SIZE = 6;
+
+    private final InMemoryUserRepository userRepository = new InMemoryUserRepository(ChangeLog.NONE);
+
+    // Enough neighbors for every film, so that the counts are exact
+    private final FilmRecommender filmRecommender = new FilmRecommender(userRepository, FILMS_COUNT, 500);
+
+    private final InMemoryLikeRepository likeRepository = new InMemoryLikeRepository(new FilmPopularityIndex(),
+            ChangeLog.NONE, filmRecommender);
+
+    private final Map<Integer, User> users = new HashMap<>();
+
+    private final Map<Integer, Film> films = new HashMap<>();
+
+    private final AtomicInteger iterationsCount = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < USERS_COUNT; i++) {
+            User user = userRepository.save(User.builder()
+                    .login("user" + i)
+                    .email("user" + i + "@mail.ru")
+                    .birthday(LocalDate.of(1990, 1, 1))
+                    .build());
+            users.put(user.getId(), userRepository.findById(user.getId()));
+        }
+        for (int i = 1; i <= FILMS_COUNT; i++) {
+            films.put(i, Film.builder()
+                    .id(i)
+                    .name("Film " + i)
+                    .description("Film descr")
+                    .duration(120)
+                    .releaseDate(LocalDate.of(2022, 11, 1))
+                    .build());
+        }
+    }
+
+    @Test
+    @DisplayName("Совместные лайки пакетов и параллельных лайков совпадают с пересчитанными заново")
+    void batchCoLikesMatchRebuildTest() throws Exception {
+        likeConcurrently();
+        assertMatchesRebuild();
+    }
+
+    @Test
+    @DisplayName("Лайки во время пересчета не теряются и не считаются дважды")
+    void likesDuringRebuildTest() throws Exception {
+        // Rebuilds over the first half of the likes only, so that the last one does not recount them all
+        Thread rebuilder = new Thread(() -> {
+            while (iterationsCount.get() < THREADS_COUNT * ITERATIONS_COUNT / 2) {
+                filmRecommender.rebuild();
+            }
+        });
+        rebuilder.start();
+        likeConcurrently();
+        rebuilder.join();
+        assertMatchesRebuild();
+    }
+
+    private void likeConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_COUNT);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS_COUNT; t++) {
+            tasks.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < ITERATIONS_COUNT; i++) {
+                    iterationsCount.incrementAndGet();
+                    User user = users.get(1 + random.nextInt(USERS_COUNT));
+                    Film film = films.get(1 + random.nextInt(FILMS_COUNT));
+                    if (random.nextInt(4) == 0) {
+                        // Several likes of one user at once, which pair with each other
+                        List<LikeMutation> mutations = new ArrayList<>();
+                        for (int j = 0; j < BATCH_SIZE; j++) {
+                            mutations.add(new LikeMutation(user.getId(), 1 + random.nextInt(FILMS_COUNT),
+                                    random.nextInt(3) == 0 ? MutationAction.REMOVE : MutationAction.ADD));
+                        }
+                        likeRepository.applyLikes(mutations, users, films);
+                    } else if (random.nextBoolean()) {
+                        likeRepository.addLike(user, film);
+                    } else {
+                        likeRepository.removeLike(user, film);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+    }
+
+    private void assertMatchesRebuild() {
+        FilmRecommender rebuiltRecommender = new FilmRecommender(userRepository, FILMS_COUNT, 500);
+        rebuiltRecommender.rebuild();
+        for (int filmId : films.keySet()) {
+            assertArrayEquals(rebuiltRecommender.findSimilar(filmId, FILMS_COUNT),
+                    filmRecommender.findSimilar(filmId, FILMS_COUNT),
+                    "Co-likes of film " + filmId + " differ from the rebuilt ones.");
+        }
+        for (User user : users.values()) {
+            assertArrayEquals(rebuiltRecommender.recommend(user, FILMS_COUNT),
+                    filmRecommender.recommend(user, FILMS_COUNT),
+                    "Recommendations for user " + user.getId() + " differ from the rebuilt ones.");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.TrendingWindow;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TrendingFilmsTest {
+
+    private final TestClock clock = new TestClock(Instant.parse("2022-11-01T00:00:00Z"));
+
+    private final TrendingFilms trendingFilms = new TrendingFilms(clock);
+
+    @Test
+    @DisplayName("Лайки выпадают из окна по мере хода часов")
+    void likesExpireTest() {
+        for (int i = 0; i < 3; i++) {
+            trendingFilms.likeAdded(1);
+        }
+        clock.advance(Duration.ofMinutes(30));
+        trendingFilms.likeAdded(2);
+        trendingFilms.likeAdded(2);
+        clock.advance(Duration.ofMinutes(90));
+        trendingFilms.likeAdded(3);
+
+        assertEquals(List.of(3), trendingFilms.getTopFilmIds(TrendingWindow.HOUR, 10), "Wrong hour top.");
+        assertEquals(List.of(1, 2, 3), trendingFilms.getTopFilmIds(TrendingWindow.DAY, 10), "Wrong day top.");
+        assertEquals(List.of(1, 2), trendingFilms.getTopFilmIds(TrendingWindow.WEEK, 2), "Wrong week top.");
+
+        // Taken back from the newest bucket of each window which has likes of the film
+        trendingFilms.likeRemoved(3);
+        trendingFilms.likeRemoved(1);
+        assertEquals(List.of(), trendingFilms.getTopFilmIds(TrendingWindow.HOUR, 10), "Wrong hour top.");
+        assertEquals(List.of(1, 2), trendingFilms.getTopFilmIds(TrendingWindow.DAY, 10), "Wrong day top.");
+
+        clock.advance(Duration.ofDays(2));
+        trendingFilms.likeAdded(2);
+        assertEquals(List.of(2), trendingFilms.getTopFilmIds(TrendingWindow.DAY, 10), "Wrong day top.");
+        assertEquals(List.of(2, 1), trendingFilms.getTopFilmIds(TrendingWindow.WEEK, 10), "Wrong week top.");
+
+        clock.advance(Duration.ofDays(7));
+        assertEquals(List.of(), trendingFilms.getTopFilmIds(TrendingWindow.WEEK, 10), "Wrong week top.");
+    }
+
+    @Test
+    @DisplayName("Отмена лайка из прошлой корзины окна")
+    void likeRemovedFromEarlierBucketTest() {
+        trendingFilms.likeAdded(1);
+        clock.advance(Duration.ofMinutes(5));
+        trendingFilms.likeRemoved(1);
+        for (TrendingWindow window : TrendingWindow.values()) {
+            assertEquals(List.of(), trendingFilms.getTopFilmIds(window, 10), "Wrong top of " + window.getValue());
+        }
+
+        trendingFilms.likeAdded(2);
+        clock.advance(Duration.ofMinutes(30));
+        trendingFilms.likeAdded(2);
+        clock.advance(Duration.ofMinutes(1));
+        trendingFilms.likeRemoved(2);
+        trendingFilms.likeRemoved(3);
+        assertEquals(List.of(2), trendingFilms.getTopFilmIds(TrendingWindow.HOUR, 10), "Wrong hour top.");
+        // The newest like was taken back, the one left falls out of the hour
+        clock.advance(Duration.ofMinutes(35));
+        assertEquals(List.of(), trendingFilms.getTopFilmIds(TrendingWindow.HOUR, 10), "Wrong hour top.");
+        assertEquals(List.of(2), trendingFilms.getTopFilmIds(TrendingWindow.DAY, 10), "Wrong day top.");
+    }
+
+    @Test
+    @DisplayName("Топ окна совпадает с подсчетом лайков по их времени")
+    void topMatchesLikesTimesTest() {
+        Random random = new Random(42);
+        List<Instant> likeTimes = new ArrayList<>();
+        List<Integer> likedFilmIds = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Skewed towards the films with lower ids, more so as the time goes
+            int filmId = 1 + (int) (500 * Math.pow(random.nextDouble(), 1 + i / 5_000.0));
+            trendingFilms.likeAdded(filmId);
+            likeTimes.add(clock.instant());
+            likedFilmIds.add(filmId);
+            clock.advance(Duration.ofSeconds(random.nextInt(120)));
+            if (i % 1_000 == 0) {
+                for (TrendingWindow window : TrendingWindow.values()) {
+                    assertEquals(expectedTop(window, likeTimes, likedFilmIds, 20),
+                            trendingFilms.getTopFilmIds(window, 20), "Wrong top of " + window.getValue());
+                }
+            }
+        }
+    }
+
+    // The likes whose bucket is one of the last BUCKETS_COUNT ones of the window
+    private List<Integer> expectedTop(TrendingWindow window, List<Instant> likeTimes, List<Integer> likedFilmIds,
+                                      int count) {
+        long bucketMillis = window.getDuration().toMillis() / TrendingFilms.BUCKETS_COUNT;
+        long bucket = clock.millis() / bucketMillis;
+        Map<Integer, Integer> likesCounts = new HashMap<>();
+        for (int i = 0; i < likeTimes.size(); i++) {
+            if (likeTimes.get(i).toEpochMilli() / bucketMillis > bucket - TrendingFilms.BUCKETS_COUNT) {
+                likesCounts.merge(likedFilmIds.get(i), 1, Integer::sum);
+            }
+        }
+        return likesCounts.entrySet()
+                .stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private static class TestClock extends Clock {
+
+        private Instant instant;
+
+        TestClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
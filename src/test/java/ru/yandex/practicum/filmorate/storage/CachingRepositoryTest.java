@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CachingRepositoryTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final UserRepository userRepository = spy(new InMemoryUserRepository(ChangeLog.NONE));
+
+    private final CachingUserRepository cachingRepository = new CachingUserRepository(userRepository, 100,
+            Duration.ofSeconds(10), nanos::get);
+
+    private final User user = User.builder()
+            .login("login")
+            .name("username")
+            .email("test@domain.xxx")
+            .birthday(LocalDate.of(1980, 1, 1))
+            .build();
+
+    @Test
+    @DisplayName("Повторное чтение пользователя из кэша и сброс после обновления")
+    void readThroughAndInvalidateOnUpdateTest() {
+        int userId = userRepository.save(user).getId();
+        cachingRepository.findById(userId);
+        cachingRepository.findById(userId);
+        verify(userRepository, times(1)).findById(userId);
+
+        cachingRepository.update(user.withId(userId).withName("Updated"));
+        assertEquals("Updated", cachingRepository.findById(userId).getName(), "Cache was not invalidated.");
+        verify(userRepository, times(2)).findById(userId);
+
+        cachingRepository.updateAll(List.of(user.withId(userId).withName("Batch")));
+        assertEquals("Batch", cachingRepository.findById(userId).getName(), "Cache was not invalidated by batch.");
+
+        cachingRepository.delete(user.withId(userId));
+        assertNull(cachingRepository.findById(userId), "Deleted user was read from cache.");
+
+        CacheStats stats = cachingRepository.getStats();
+        assertEquals(1, stats.hitCount(), "Wrong hits count.");
+        assertEquals(4, stats.missCount(), "Wrong misses count.");
+    }
+
+    @Test
+    @DisplayName("Истечение записи кэша по времени")
+    void expireAfterWriteTest() {
+        User persistedUser = cachingRepository.save(user);
+        cachingRepository.findById(persistedUser.getId());
+        verify(userRepository, times(0)).findById(persistedUser.getId());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        cachingRepository.findById(persistedUser.getId());
+        verify(userRepository, times(1)).findById(persistedUser.getId());
+        assertEquals(1, cachingRepository.getStats().evictionCount(), "Expired entry was not evicted.");
+    }
+}
@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmPopularityIndexTest {
+
+    private static final Comparator<Film> filmPopularityComparator = Comparator
+            .comparing((Film film) -> film.getLikesCount().intValue()).reversed();
+
+    private final Random random = new Random(42);
+
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+
+    private final List<Film> films = new ArrayList<>();
+
+    @Test
+    @DisplayName("Рейтинг индекса совпадает с полной сортировкой каталога")
+    void topFilmsMatchFullSortTest() {
+        for (int i = 1; i <= 1000; i++) {
+            Film film = createFilm(i);
+            film.getLikesCount().add(random.nextInt(50));
+            films.add(film);
+            popularityIndex.refresh(film);
+        }
+        assertTopMatchesSort();
+        // Random likes and unlikes
+        for (int i = 0; i < 10_000; i++) {
+            Film film = films.get(random.nextInt(films.size()));
+            if (random.nextBoolean() || film.getLikesCount().get() == 0) {
+                film.getLikesCount().increment();
+            } else {
+                film.getLikesCount().decrement();
+            }
+            popularityIndex.refresh(film);
+        }
+        assertTopMatchesSort();
+    }
+
+    @Test
+    @DisplayName("Удаленный фильм исчезает из рейтинга")
+    void removedFilmIsNotRatedTest() {
+        for (int i = 1; i <= 10; i++) {
+            Film film = createFilm(i);
+            film.getLikesCount().add(i);
+            films.add(film);
+            popularityIndex.refresh(film);
+        }
+        popularityIndex.remove(10);
+        films.remove(9);
+        assertEquals(List.of(9, 8, 7), popularityIndex.getTopFilmIds(3), "Rating contains removed film.");
+        assertTopMatchesSort();
+    }
+
+    @Test
+    @DisplayName("Рейтинг успевает за параллельными лайками одного фильма")
+    void hotFilmRefreshedConcurrentlyTest() throws InterruptedException {
+        for (int i = 1; i <= 10; i++) {
+            Film film = createFilm(i);
+            film.getLikesCount().add(i * 100);
+            films.add(film);
+            popularityIndex.refresh(film);
+        }
+        Film premiere = films.get(0);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                // The premiere overtakes every other film one like at a time
+                for (int j = 0; j < 200; j++) {
+                    premiere.getLikesCount().increment();
+                    popularityIndex.refresh(premiere);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, popularityIndex.getTopFilmIds(1).get(0), "Premiere is not on top.");
+        assertTopMatchesSort();
+    }
+
+    private void assertTopMatchesSort() {
+        for (int count : new int[]{1, 10, 100, films.size(), films.size() + 1}) {
+            List<Integer> expected = films
+                    .stream()
+                    .sorted(filmPopularityComparator)
+                    .limit(count)
+                    .map(Film::getId)
+                    .collect(Collectors.toList());
+            assertEquals(expected, popularityIndex.getTopFilmIds(count),
+                    "Rating differs from sorted catalog for count=" + count);
+        }
+    }
+
+    private static Film createFilm(int id) {
+        return Film.builder()
+                .id(id)
+                .name("Film " + id)
+                .description("Film descr")
+                .duration(120)
+                .releaseDate(LocalDate.of(2022, 11, 1))
+                .build();
+    }
+}
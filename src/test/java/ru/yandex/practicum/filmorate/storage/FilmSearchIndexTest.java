@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilmSearchIndexTest {
+
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+
+    @Test
+    @DisplayName("Ранжирование: название важнее описания, редкие и частые слова, префикс последнего слова")
+    void rankingTest() {
+        searchIndex.add(createFilm(1, "Космос", "Фильм о далеком космосе и звездах"));
+        searchIndex.add(createFilm(2, "Звездные войны", "Космическая опера о войне в далекой галактике"));
+        searchIndex.add(createFilm(3, "Интерстеллар", "Путешествие сквозь космос, космос и еще раз космос"));
+        searchIndex.add(createFilm(4, "Гравитация", "Авария на орбите"));
+
+        assertEquals(List.of("космос", "2022", "e"), FilmSearchIndex.tokenize("  Космос-2022, E! "), "Wrong tokens.");
+        assertEquals(List.of(1, 3), searchIndex.search("КОСМОС", 10), "Name match must come first.");
+        assertEquals(List.of(2, 1), searchIndex.search("звезд", 10), "Wrong prefix search.");
+        assertEquals(List.of(), searchIndex.search("далек косм", 10), "Only the last word is a prefix.");
+        assertEquals(List.of(2), searchIndex.search("далекой косм", 10), "All words must match.");
+        assertEquals(List.of(1), searchIndex.search("далеком косм", 10), "All words must match.");
+        assertEquals(List.of(2), searchIndex.search("звезд", 1), "Wrong count.");
+        assertEquals(List.of(), searchIndex.search("марс", 10), "Nothing must match.");
+        assertEquals(List.of(), searchIndex.search(" ,. ", 10), "Blank query must match nothing.");
+
+        searchIndex.update(createFilm(4, "Гравитация", "Авария на орбите"),
+                createFilm(4, "Гравитация", "Авария в открытом космосе"));
+        searchIndex.remove(createFilm(1, "Космос", "Фильм о далеком космосе и звездах"));
+        assertEquals(List.of(3, 4), searchIndex.search("космос", 10), "Changes were not indexed.");
+        assertEquals(List.of(), searchIndex.search("орбите", 10), "Old description is still indexed.");
+    }
+
+    @Test
+    @DisplayName("Поиск находит те же фильмы, что и перебор каталога, после изменений и удалений")
+    void matchesFullScanTest() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[300];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = randomWord(random);
+        }
+        Map<Integer, Film> films = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            int filmId = 1 + random.nextInt(2_000);
+            Film film = createFilm(filmId, randomText(random, vocabulary, 3), randomText(random, vocabulary, 15));
+            Film oldFilm = films.put(filmId, film);
+            if (oldFilm == null) {
+                searchIndex.add(film);
+            } else if (random.nextInt(4) == 0) {
+                films.remove(filmId);
+                searchIndex.remove(oldFilm);
+            } else {
+                searchIndex.update(oldFilm, film);
+            }
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String exactWord = vocabulary[random.nextInt(vocabulary.length)];
+            String prefix = vocabulary[random.nextInt(vocabulary.length)].substring(0, 2);
+            Set<Integer> expected = films.values()
+                    .stream()
+                    .filter(film -> {
+                        List<String> tokens = FilmSearchIndex.tokenize(film.getName() + " " + film.getDescription());
+                        return tokens.contains(exactWord)
+                                && tokens.stream().anyMatch(token -> token.startsWith(prefix));
+                    })
+                    .map(Film::getId)
+                    .collect(Collectors.toSet());
+            List<Integer> found = searchIndex.search(exactWord + " " + prefix, Integer.MAX_VALUE);
+            assertEquals(expected, new HashSet<>(found), "Wrong films for '" + exactWord + " " + prefix + "'.");
+            assertEquals(expected.size(), found.size(), "Films are found twice.");
+        }
+    }
+
+    @Test
+    @DisplayName("Префикс раскрывается в слова самых многих фильмов")
+    void prefixExpandsToFrequentTermsTest() {
+        // Rare terms which come before the frequent one in the dictionary
+        for (int i = 1; i <= FilmSearchIndex.MAX_PREFIX_TERMS + 10; i++) {
+            searchIndex.add(createFilm(i, "Фильм", String.format("приз%03d", i)));
+        }
+        for (int i = 101; i <= 105; i++) {
+            searchIndex.add(createFilm(i, "Фильм", "призрак"));
+        }
+        List<Integer> found = searchIndex.search("приз", Integer.MAX_VALUE);
+        // The frequent term and all but one of the rare ones
+        assertEquals(FilmSearchIndex.MAX_PREFIX_TERMS - 1 + 5, found.size(), "Wrong number of expanded terms.");
+        assertTrue(found.containsAll(List.of(101, 102, 103, 104, 105)), "Frequent term was not expanded to.");
+    }
+
+    @Test
+    @DisplayName("Слова удаленных фильмов исчезают из словаря")
+    void emptiedTermsAreDroppedTest() {
+        Film first = createFilm(1, "Космос", "Далекие звезды");
+        Film second = createFilm(2, "Космос", "Черная дыра");
+        searchIndex.add(first);
+        searchIndex.add(second);
+        searchIndex.remove(first);
+        assertEquals(3, searchIndex.termsCount(), "Terms of the removed film remain.");
+        searchIndex.remove(second);
+        assertEquals(0, searchIndex.termsCount(), "Terms of the removed films remain.");
+
+        searchIndex.add(first);
+        assertEquals(List.of(1), searchIndex.search("косм", 10), "Term was not added again.");
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 3 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(6)));
+        }
+        return word.toString();
+    }
+
+    private static String randomText(Random random, String[] vocabulary, int wordsCount) {
+        return random
+                .ints(wordsCount, 0, vocabulary.length)
+                .mapToObj(i -> vocabulary[i])
+                .collect(Collectors.joining(" "));
+    }
+
+    private static Film createFilm(int id, String name, String description) {
+        return Film.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .duration(120)
+                .releaseDate(LocalDate.of(2022, 11, 1))
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryFilmRepositoryTest {
+
+    private static final int THREADS_COUNT = 64;
+    private static final int ITERATIONS_COUNT = 1_000;
+
+    private final InMemoryFilmRepository filmRepository = new InMemoryFilmRepository(new FilmPopularityIndex(),
+            new FilmSearchIndex(), ChangeLog.NONE);
+
+    private final Film film = Film.builder()
+            .name("Film test name")
+            .description("Film test descr")
+            .duration(120)
+            .releaseDate(LocalDate.of(2022, 11, 1))
+            .build();
+
+    @Test
+    @DisplayName("Параллельное создание, обновление и лайки фильмов без потерянных изменений")
+    void concurrentCreateUpdateLikeTest() throws Exception {
+        Film hotFilm = filmRepository.save(film);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_COUNT);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Film>> ownFilms = new ArrayList<>();
+        for (int t = 0; t < THREADS_COUNT; t++) {
+            ownFilms.add(executor.submit(() -> {
+                start.await();
+                Film ownFilm = filmRepository.save(film);
+                for (int i = 1; i <= ITERATIONS_COUNT; i++) {
+                    filmRepository.findById(ownFilm.getId()).getLikesCount().increment();
+                    filmRepository.update(ownFilm.withDuration(i));
+                    filmRepository.findById(hotFilm.getId()).getLikesCount().increment();
+                    filmRepository.update(hotFilm.withDescription("Descr " + i));
+                }
+                return ownFilm;
+            }));
+        }
+        start.countDown();
+        for (Future<Film> ownFilm : ownFilms) {
+            Film persistedFilm = filmRepository.findById(ownFilm.get().getId());
+            assertEquals(ITERATIONS_COUNT, persistedFilm.getLikesCount().get(), "Likes of own film were lost.");
+            assertEquals(ITERATIONS_COUNT, persistedFilm.getDuration(), "Last update of own film was lost.");
+        }
+        executor.shutdown();
+        assertEquals(THREADS_COUNT + 1, filmRepository.findAll().size(), "Created films were lost.");
+        assertEquals(THREADS_COUNT * ITERATIONS_COUNT, filmRepository.findById(hotFilm.getId()).getLikesCount().get(),
+                "Likes of concurrently updated film were lost.");
+    }
+}
@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeMutation;
+import ru.yandex.practicum.filmorate.model.MutationAction;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryLikeRepositoryTest {
+
+    private static final int THREADS_COUNT = 16;
+    private static final int ITERATIONS_COUNT = 5_000;
+    private static final int USERS_COUNT = 50;
+    private static final int FILMS_COUNT = 5;
+
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+
+    private final InMemoryLikeRepository likeRepository = new InMemoryLikeRepository(popularityIndex, ChangeLog.NONE,
+            LikeListener.NONE);
+
+    private final Map<Integer, User> users = new HashMap<>();
+
+    private final Map<Integer, Film> films = new HashMap<>();
+
+    @Test
+    @DisplayName("Параллельные лайки, отмены и пакеты оставляют лайкеров, лайки пользователей и счетчики согласованными")
+    void concurrentLikeUnlikeTest() throws Exception {
+        for (int i = 1; i <= USERS_COUNT; i++) {
+            users.put(i, createUser(i));
+        }
+        for (int i = 1; i <= FILMS_COUNT; i++) {
+            films.put(i, createFilm(i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_COUNT);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS_COUNT; t++) {
+            tasks.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < ITERATIONS_COUNT; i++) {
+                    User user = users.get(1 + random.nextInt(USERS_COUNT));
+                    Film film = films.get(1 + random.nextInt(FILMS_COUNT));
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            likeRepository.addLike(user, film);
+                            break;
+                        case 1:
+                            likeRepository.removeLike(user, film);
+                            break;
+                        default:
+                            // The same pair twice, so the order within the batch matters
+                            MutationAction action = random.nextBoolean() ? MutationAction.ADD : MutationAction.REMOVE;
+                            likeRepository.applyLikes(List.of(
+                                    new LikeMutation(user.getId(), film.getId(), action),
+                                    new LikeMutation(user.getId(), 1 + random.nextInt(FILMS_COUNT), MutationAction.ADD),
+                                    new LikeMutation(user.getId(), film.getId(), action)), users, films);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        executor.shutdown();
+
+        long likesCount = 0;
+        for (Film film : films.values()) {
+            long likers = users.values().stream().filter(user -> user.getLikedFilms().contains(film.getId())).count();
+            assertEquals(likers, film.getLikesCount().get(), "Likes count differs from the liked films of users.");
+            likesCount += likers;
+        }
+        assertEquals(likesCount, likeRepository.countLikes(), "Wrong total likes count.");
+        List<Integer> expectedTop = films.values()
+                .stream()
+                .sorted(Comparator.comparing((Film film) -> film.getLikesCount().get()).reversed()
+                        .thenComparing(Film::getId))
+                .map(Film::getId)
+                .collect(Collectors.toList());
+        assertEquals(expectedTop, popularityIndex.getTopFilmIds(FILMS_COUNT), "Popularity index missed likes.");
+
+        // A like is removed exactly when the user has it, which checks the likers sets against the users
+        for (User user : users.values()) {
+            for (Film film : films.values()) {
+                assertEquals(user.getLikedFilms().contains(film.getId()), likeRepository.removeLike(user, film),
+                        "Likers of the film differ from the liked films of the user.");
+            }
+        }
+        for (Film film : films.values()) {
+            assertEquals(0, film.getLikesCount().get(), "Likes count differs from the likers.");
+        }
+        assertEquals(0, likeRepository.countLikes(), "Wrong total likes count.");
+    }
+
+    private static User createUser(int id) {
+        return User.builder()
+                .id(id)
+                .email("user" + id + "@mail.ru")
+                .login("user" + id)
+                .name("User " + id)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private static Film createFilm(int id) {
+        return Film.builder()
+                .id(id)
+                .name("Film " + id)
+                .description("Film descr")
+                .duration(120)
+                .releaseDate(LocalDate.of(2022, 11, 1))
+                .build();
+    }
+}
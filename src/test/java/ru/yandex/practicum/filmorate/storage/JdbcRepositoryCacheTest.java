@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The caches in front of the JDBC repositories against the writes which change other entities than the given one.
+ */
+@SpringBootTest
+@ActiveProfiles("jdbc")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:${random.uuid}")
+class JdbcRepositoryCacheTest {
+
+    @Autowired
+    private FilmRepository filmRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LikeRepository likeRepository;
+
+    @Autowired
+    private FriendshipRepository friendshipRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Film film = Film.builder()
+            .name("Film test name")
+            .description("Film test descr")
+            .duration(120)
+            .releaseDate(LocalDate.of(2022, 11, 1))
+            .build();
+
+    private final User user = User.builder()
+            .login("login")
+            .name("username")
+            .email("test@domain.xxx")
+            .birthday(LocalDate.of(1980, 1, 1))
+            .build();
+
+    @Test
+    @DisplayName("Кэш сбрасывает затронутые записью сущности после фиксации и не меняется при откате")
+    void invalidateTouchedEntitiesAfterCommitTest() {
+        assertTrue(filmRepository instanceof CachingFilmRepository, "Films are not cached.");
+        int filmId = filmRepository.save(film).getId();
+        User firstUser = userRepository.save(user);
+        User secondUser = userRepository.save(user.withName("Second"));
+
+        Film cachedFilm = filmRepository.findById(filmId);
+        assertTrue(likeRepository.addLike(firstUser, cachedFilm), "Like was not added.");
+        assertEquals(0, cachedFilm.getLikesCount().get(), "Cached film was changed in place.");
+        Film likedFilm = filmRepository.findById(filmId);
+        assertEquals(1, likedFilm.getLikesCount().get(), "Liked film was not invalidated.");
+        assertEquals(IntSet.of(filmId), userRepository.findById(firstUser.getId()).getLikedFilms(),
+                "User who liked was not invalidated.");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            likeRepository.addLike(secondUser, likedFilm);
+            friendshipRepository.addFriendship(firstUser, secondUser);
+            status.setRollbackOnly();
+        });
+        assertSame(likedFilm, filmRepository.findById(filmId), "Film was invalidated by a rolled back like.");
+        assertEquals(1, likedFilm.getLikesCount().get(), "Rolled back like is in the cached film.");
+        assertEquals(IntSet.of(), userRepository.findById(secondUser.getId()).getFriends(),
+                "Rolled back friendship is in the cached user.");
+
+        friendshipRepository.addFriendship(firstUser, secondUser);
+        assertEquals(IntSet.of(firstUser.getId()), userRepository.findById(secondUser.getId()).getFriends(),
+                "Friend was not invalidated.");
+        long version = filmRepository.findById(filmId).getVersion().sum();
+        userRepository.delete(firstUser);
+        Film unlikedFilm = filmRepository.findById(filmId);
+        assertEquals(0, unlikedFilm.getLikesCount().get(), "Film liked by the deleted user was not invalidated.");
+        assertTrue(unlikedFilm.getVersion().sum() > version, "Version of the film has not moved.");
+        assertEquals(IntSet.of(), userRepository.findById(secondUser.getId()).getFriends(),
+                "Friend of the deleted user was not invalidated.");
+    }
+}
@@ -0,0 +1,248 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    private final Film film = Film.builder()
+            .name("Film test name")
+            .description("Film test descr")
+            .duration(120)
+            .releaseDate(LocalDate.of(2022, 11, 1))
+            .build();
+
+    private final User user = User.builder()
+            .login("login")
+            .name("username")
+            .email("test@domain.xxx")
+            .birthday(LocalDate.of(1980, 1, 1))
+            .build();
+
+    @Test
+    @DisplayName("Восстановление фильмов, пользователей, лайков и дружбы из журнала")
+    void replayRestoresRepositoriesTest() throws Exception {
+        Path path = directory.resolve("filmorate.wal");
+        SnapshotStore snapshotStore = new SnapshotStore(directory.resolve("filmorate.snapshot"));
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 2, 1, true)) {
+            Repositories repositories = new Repositories(writeAheadLog, snapshotStore);
+            repositories.load();
+            Film firstFilm = repositories.filmRepository.save(film);
+            Film secondFilm = repositories.filmRepository.save(film.withName("Second"));
+            repositories.filmRepository.update(secondFilm.withDuration(90));
+            User firstUser = repositories.userRepository.save(user);
+            User secondUser = repositories.userRepository.save(user.withName("Second"));
+            User thirdUser = repositories.userRepository.save(user.withName(null));
+            repositories.likeRepository.addLike(firstUser, secondFilm);
+            repositories.likeRepository.addLike(secondUser, secondFilm);
+            repositories.likeRepository.addLike(firstUser, firstFilm);
+            repositories.likeRepository.removeLike(firstUser, firstFilm);
+            repositories.friendshipRepository.addFriendship(firstUser, secondUser);
+            repositories.friendshipRepository.addFriendship(thirdUser, firstUser);
+            repositories.friendshipRepository.removeFriendship(secondUser, firstUser);
+            repositories.userRepository.update(firstUser.withName("Updated"));
+        }
+
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 2, 1, true)) {
+            Repositories repositories = new Repositories(writeAheadLog, snapshotStore);
+            repositories.load();
+            assertEquals(2, repositories.filmRepository.findAll().size(), "Films were not restored.");
+            Film secondFilm = repositories.filmRepository.findById(2);
+            assertEquals(90, secondFilm.getDuration(), "Film update was not restored.");
+            assertEquals(2, secondFilm.getLikesCount().get(), "Likes were not restored.");
+            assertEquals(0, repositories.filmRepository.findById(1).getLikesCount().get(),
+                    "Removed like was restored.");
+            User firstUser = repositories.userRepository.findById(1);
+            assertEquals("Updated", firstUser.getName(), "User update was not restored.");
+            assertNull(repositories.userRepository.findById(3).getName(), "Null name was not restored.");
+            assertEquals(IntSet.of(3), firstUser.getFriends(), "Friendships were not restored.");
+            assertEquals(IntSet.of(2), firstUser.getLikedFilms(), "Liked films were not restored.");
+            assertEquals(List.of(2), repositories.popularityIndex.getTopFilmIds(1), "Popularity index was not rebuilt.");
+            assertEquals(4, repositories.userRepository.save(user).getId(), "Restored ids were handed out again.");
+        }
+    }
+
+    @Test
+    @DisplayName("Отбрасывание оборванной записи в конце журнала")
+    void replayCutsOffTornTailTest() throws Exception {
+        Path path = directory.resolve("filmorate.wal");
+        SnapshotStore snapshotStore = new SnapshotStore(directory.resolve("filmorate.snapshot"));
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 1, 1, true)) {
+            Repositories repositories = new Repositories(writeAheadLog, snapshotStore);
+            repositories.load();
+            repositories.filmRepository.save(film);
+        }
+        long intactSize = Files.size(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.APPEND)) {
+            // Header of a record whose body has never reached the disk
+            channel.write(ByteBuffer.allocate(8).putInt(100).putInt(42).flip());
+        }
+
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 1, 1, true)) {
+            Repositories repositories = new Repositories(writeAheadLog, snapshotStore);
+            repositories.load();
+            assertEquals(intactSize, Files.size(path), "Torn tail was not cut off.");
+            assertEquals(1, repositories.filmRepository.findAll().size(), "Intact film was not restored.");
+            repositories.filmRepository.save(film);
+        }
+
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 1, 1, true)) {
+            Repositories repositories = new Repositories(writeAheadLog, snapshotStore);
+            repositories.load();
+            assertEquals(2, repositories.filmRepository.findAll().size(),
+                    "Film appended after the cut was not restored.");
+        }
+    }
+
+    @Test
+    @DisplayName("Восстановление из снимка и изменений журнала после него")
+    void replayAfterSnapshotTest() throws Exception {
+        Path path = directory.resolve("filmorate.wal");
+        SnapshotStore snapshotStore = new SnapshotStore(directory.resolve("filmorate.snapshot"));
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 2, 1, true)) {
+            Repositories repositories = new Repositories(writeAheadLog, snapshotStore);
+            repositories.load();
+            Film firstFilm = repositories.filmRepository.save(film);
+            Film secondFilm = repositories.filmRepository.save(film.withName("Second"));
+            User firstUser = repositories.userRepository.save(user);
+            User secondUser = repositories.userRepository.save(user.withName("Second"));
+            repositories.likeRepository.addLike(firstUser, firstFilm);
+            repositories.likeRepository.addLike(secondUser, firstFilm);
+            repositories.friendshipRepository.addFriendship(secondUser, firstUser);
+            repositories.snapshotScheduler.takeSnapshot();
+            repositories.likeRepository.removeLike(secondUser, firstFilm);
+            repositories.likeRepository.addLike(secondUser, secondFilm);
+            repositories.filmRepository.update(secondFilm.withDuration(90));
+            repositories.userRepository.save(user.withName("Third"));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("filmorate.snapshot.0000000001", "filmorate.wal"),
+                    files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList()),
+                    "Log segment covered by the snapshot was not deleted.");
+        }
+
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 2, 1, true)) {
+            Repositories repositories = new Repositories(writeAheadLog, snapshotStore);
+            repositories.load();
+            assertEquals(1, repositories.filmRepository.findById(1).getLikesCount().get(),
+                    "Likes were not restored.");
+            assertEquals(1, repositories.filmRepository.findById(2).getLikesCount().get(),
+                    "Like made after the snapshot was not restored.");
+            assertEquals(90, repositories.filmRepository.findById(2).getDuration(),
+                    "Update made after the snapshot was not restored.");
+            assertEquals(IntSet.of(2), repositories.userRepository.findById(1).getFriends(),
+                    "Friendships were not restored.");
+            assertEquals(IntSet.of(1), repositories.userRepository.findById(2).getFriends(),
+                    "Friendships were not restored.");
+            assertEquals("Third", repositories.userRepository.findById(3).getName(),
+                    "User created after the snapshot was not restored.");
+            repositories.snapshotScheduler.takeSnapshot();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("filmorate.snapshot.0000000002", "filmorate.wal"),
+                    files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList()),
+                    "Previous snapshot was not deleted.");
+        }
+    }
+
+    @Test
+    @DisplayName("Восстановление строк длиннее 65535 байт из снимка и журнала")
+    void replayLongStringsTest() throws Exception {
+        Path path = directory.resolve("filmorate.wal");
+        SnapshotStore snapshotStore = new SnapshotStore(directory.resolve("filmorate.snapshot"));
+        // Two bytes per letter in UTF-8
+        String longName = "Фильм".repeat(20_000);
+        String longLogin = "логин".repeat(20_000);
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 2, 1, true)) {
+            Repositories repositories = new Repositories(writeAheadLog, snapshotStore);
+            repositories.load();
+            repositories.filmRepository.save(film.withName(longName));
+            repositories.userRepository.save(user.withLogin(longLogin));
+            repositories.snapshotScheduler.takeSnapshot();
+            repositories.filmRepository.update(film.withId(1).withName(longName + "!"));
+            repositories.userRepository.save(user.withName(longLogin));
+            assertThrows(IllegalArgumentException.class,
+                    () -> repositories.filmRepository.save(film.withName(longName.repeat(6))),
+                    "Record longer than the limit was accepted.");
+        }
+
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 2, 1, true)) {
+            Repositories repositories = new Repositories(writeAheadLog, snapshotStore);
+            repositories.load();
+            assertEquals(1, repositories.filmRepository.findAll().size(), "Rejected film was stored.");
+            assertEquals(longName + "!", repositories.filmRepository.findById(1).getName(),
+                    "Long film name was not restored.");
+            assertEquals(longLogin, repositories.userRepository.findById(1).getLogin(),
+                    "Long login was not restored from the snapshot.");
+            assertEquals(longLogin, repositories.userRepository.findById(2).getName(),
+                    "Long name was not restored from the log.");
+        }
+    }
+
+    @Test
+    @DisplayName("Изменение подтверждается только после fsync его записи")
+    void changeAcknowledgedAfterFsyncTest() throws Exception {
+        Path path = directory.resolve("filmorate.wal");
+        SnapshotStore snapshotStore = new SnapshotStore(directory.resolve("filmorate.snapshot"));
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(path, 1000, 100, true)) {
+            Repositories repositories = new Repositories(writeAheadLog, snapshotStore);
+            repositories.load();
+            repositories.filmRepository.save(film);
+            assertTrue(Files.size(path) > 0, "Film was acknowledged before its record was written.");
+        }
+
+        Path asyncPath = directory.resolve("async.wal");
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(asyncPath, 1000, 60_000, false)) {
+            Repositories repositories = new Repositories(writeAheadLog, snapshotStore);
+            repositories.load();
+            repositories.filmRepository.save(film);
+            assertEquals(0, Files.size(asyncPath), "Film was not acknowledged before the fsync.");
+        }
+        assertTrue(Files.size(asyncPath) > 0, "Buffered record was not written on close.");
+    }
+
+    private static class Repositories {
+
+        final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+        final InMemoryFilmRepository filmRepository;
+        final InMemoryUserRepository userRepository;
+        final InMemoryLikeRepository likeRepository;
+        final InMemoryFriendshipRepository friendshipRepository;
+        final WriteAheadLogLoader loader;
+
+        final SnapshotScheduler snapshotScheduler;
+
+        Repositories(WriteAheadLog writeAheadLog, SnapshotStore snapshotStore) {
+            filmRepository = new InMemoryFilmRepository(popularityIndex, new FilmSearchIndex(), writeAheadLog);
+            userRepository = new InMemoryUserRepository(writeAheadLog);
+            likeRepository = new InMemoryLikeRepository(popularityIndex, writeAheadLog, LikeListener.NONE);
+            friendshipRepository = new InMemoryFriendshipRepository(writeAheadLog);
+            loader = new WriteAheadLogLoader(writeAheadLog, snapshotStore, filmRepository, userRepository,
+                    likeRepository, friendshipRepository);
+            snapshotScheduler = new SnapshotScheduler(writeAheadLog, snapshotStore, filmRepository, userRepository);
+        }
+
+        void load() throws Exception {
+            loader.load();
+        }
+    }
+}
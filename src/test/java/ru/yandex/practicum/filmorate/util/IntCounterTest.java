@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IntCounterTest {
+
+    @Test
+    @DisplayName("IntCounter считает как HashMap и ранжирует по убыванию счетчика и возрастанию ключа")
+    void countsMatchHashMapTest() {
+        Random random = new Random(42);
+        IntCounter counter = new IntCounter();
+        IntCounter otherCounter = new IntCounter(100);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            int key = 1 + random.nextInt(5_000);
+            (i % 2 == 0 ? counter : otherCounter).increment(key);
+            expected.merge(key, 1, Integer::sum);
+        }
+        counter.addAll(otherCounter);
+
+        assertEquals(expected.size(), counter.size(), "Wrong size.");
+        for (int key = 1; key <= 5_000; key++) {
+            assertEquals(expected.getOrDefault(key, 0), counter.get(key), "Wrong count of " + key);
+        }
+        int[] expectedTop = expected.entrySet()
+                .stream()
+                .filter(entry -> entry.getKey() % 3 != 0)
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(50)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+        assertArrayEquals(expectedTop, counter.top(50, key -> key % 3 == 0), "Wrong ranking.");
+    }
+}
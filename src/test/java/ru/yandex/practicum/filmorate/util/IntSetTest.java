@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IntSetTest {
+
+    @DisplayName("IntSet ведет себя как HashSet при случайных добавлениях и удалениях")
+    @ParameterizedTest(name = "{index}. Значения из диапазона [1, {0}]")
+    @ValueSource(ints = {IntSet.SORTED_MAX_SIZE, 2_000})
+    void randomOperationsMatchHashSetTest(int maxValue) {
+        Random random = new Random(42);
+        IntSet intSet = new IntSet();
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            int value = 1 + random.nextInt(maxValue);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), intSet.remove(value), "Wrong result of remove " + value);
+            } else {
+                assertEquals(expected.add(value), intSet.add(value), "Wrong result of add " + value);
+            }
+            assertEquals(expected.size(), intSet.size(), "Wrong size.");
+        }
+        for (int value = 1; value <= maxValue; value++) {
+            assertEquals(expected.contains(value), intSet.contains(value), "Wrong result of contains " + value);
+        }
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).sorted().toArray(), intSet.toArray(),
+                "Wrong content.");
+    }
+
+    @DisplayName("Пересечение IntSet совпадает с retainAll для HashSet")
+    @ParameterizedTest(name = "{index}. Размеры множеств {0} и 10 * {0}")
+    @ValueSource(ints = {1, 4, 10, IntSet.SORTED_MAX_SIZE, 1_000, IntSet.PARALLEL_MIN_SIZE * 2})
+    void intersectionMatchesRetainAllTest(int size) {
+        Random random = new Random(size);
+        int[] smallValues = random.ints(size, 1, size * 20).toArray();
+        int[] largeValues = random.ints(size * 10L, 1, size * 20).toArray();
+        Set<Integer> expected = new HashSet<>();
+        IntStream.of(smallValues).forEach(expected::add);
+        Set<Integer> largeSet = new HashSet<>();
+        IntStream.of(largeValues).forEach(largeSet::add);
+        expected.retainAll(largeSet);
+        int[] expectedArray = expected.stream().mapToInt(Integer::intValue).sorted().toArray();
+        IntSet small = IntSet.of(smallValues);
+        IntSet large = IntSet.of(largeValues);
+        assertArrayEquals(expectedArray, small.intersect(large), "Wrong intersection.");
+        assertArrayEquals(expectedArray, large.intersect(small), "Intersection is not symmetric.");
+        assertArrayEquals(large.toArray(), large.intersect(large), "Wrong self intersection.");
+    }
+
+    @Test
+    @DisplayName("Пересечение уменьшившейся хеш-таблицы с отсортированным массивом")
+    void intersectionOfShrunkHashedSetTest() {
+        IntSet shrunk = IntSet.of(IntStream.rangeClosed(1, IntSet.SORTED_MAX_SIZE * 2).toArray());
+        IntStream.rangeClosed(11, IntSet.SORTED_MAX_SIZE * 2).forEach(shrunk::remove);
+        IntSet sorted = IntSet.of(IntStream.rangeClosed(5, 40).toArray());
+        assertArrayEquals(new int[]{5, 6, 7, 8, 9, 10}, shrunk.intersect(sorted), "Wrong intersection.");
+    }
+}
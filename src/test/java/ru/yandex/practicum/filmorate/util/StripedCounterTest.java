@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StripedCounterTest {
+
+    private static final int THREADS_COUNT = 8;
+    private static final int ITERATIONS_COUNT = 100_000;
+
+    @Test
+    @DisplayName("Конкурентные изменения счетчика не теряются")
+    void concurrentUpdatesTest() throws InterruptedException {
+        StripedCounter counter = new StripedCounter(5);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS_COUNT; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < ITERATIONS_COUNT; j++) {
+                    counter.increment();
+                    counter.increment();
+                    counter.decrement();
+                }
+                counter.add(-1);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(5 + THREADS_COUNT * (ITERATIONS_COUNT - 1), counter.get(), "Updates were lost.");
+
+        counter.add(3);
+        assertEquals(8 + THREADS_COUNT * (ITERATIONS_COUNT - 1), counter.intValue(), "Wrong value after add.");
+    }
+
+    @Test
+    @DisplayName("Счетчик сериализуется числом")
+    void serializedAsNumberTest() throws Exception {
+        StripedCounter counter = new StripedCounter();
+        counter.add(42);
+        assertEquals("42", new ObjectMapper().writeValueAsString(counter), "Wrong JSON.");
+    }
+}